@@ -16,6 +16,8 @@ public enum Material {
     RED_ANT(0xffff0000, true, false)
     ;
 
+    private static final Material[] BY_ID = values();
+
     private final int color;
     private final boolean solid;
     private final boolean digable;
@@ -56,4 +58,29 @@ public enum Material {
         return digable;
     }
 
+    /**
+     * Id of the material is its ordinal. Voxel storages keep ids instead of the enum references.
+     * @return number from 0 (AIR) to the number of materials - 1
+     */
+    public int getId() {
+        return ordinal();
+    }
+
+    /**
+     * Bit of the material used in masks of materials (for example which materials can be replaced when filling a shape)
+     * @return 1 shifted by the id of the material
+     */
+    public int getMask() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Returns material with given id without creating a new array of values like values() does
+     * @param id id of the material (its ordinal)
+     * @return Material with the given id
+     */
+    public static Material byId(int id) {
+        return BY_ID[id];
+    }
+
 }
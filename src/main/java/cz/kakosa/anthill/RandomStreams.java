@@ -0,0 +1,49 @@
+package cz.kakosa.anthill;
+
+import java.util.Random;
+
+/**
+ * Derives independent Random objects from the seed of the world. Every generation feature (and every instance of it, like a single tree)
+ * draws from its own stream, so the map doesn't depend on the order or the thread in which the features are generated
+ * and adding draws to one feature doesn't change the others.
+ */
+public final class RandomStreams {
+
+    public static final int VALLEYS = 1, STONES = 2, TREES = 3, FOOD = 4, ANTS = 5;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private RandomStreams() {
+    }
+
+    /**
+     * Returns Random of a stream. The same seed, stream and index always give the same sequence.
+     * @param seed seed of the world
+     * @param stream feature the stream belongs to (VALLEYS, STONES, TREES, FOOD or ANTS)
+     * @param index instance of the feature
+     * @return new Random object
+     */
+    public static Random get(long seed, int stream, int index) {
+        return new Random(seedOf(seed, stream, index));
+    }
+
+    /**
+     * Returns seed of a stream, for reseeding a Random that is reused for many streams
+     * @param seed seed of the world
+     * @param stream feature the stream belongs to (VALLEYS, STONES, TREES, FOOD or ANTS)
+     * @param index instance of the feature
+     * @return seed the Random of the stream starts with
+     */
+    public static long seedOf(long seed, int stream, int index) {
+        return mix(mix(seed + stream * GOLDEN_GAMMA) + (index + 1) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * Scrambles bits of the value so that near seeds give unrelated streams (finalizer of SplitMix64)
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -8,7 +8,11 @@ import cz.kakosa.pixelsim.Renderer;
  */
 public class ScreenInfo {
 
-    Ant selectedAnt = null;
+    int selectedAnt = AntStore.NO_ANT;
+    /**
+     * Generation of the selected id, so that an ant which gets the id after the selected one is removed isn't shown instead of it
+     */
+    int selectedGeneration;
 
     protected int infobarWidth = 300;
 
@@ -34,12 +38,15 @@ public class ScreenInfo {
         r.drawText("Depth: " + (int)sm.getVisibleLayer(), sm.getWindowWidth() - infobarWidth + 20, 60, 0xffffffff,2);
         r.drawText("Visibility: " + sm.terrain.getVisDepth(), sm.getWindowWidth() - infobarWidth + 20, 80, 0xffffffff,2);
         r.drawText("X-RAY: " + (sm.terrain.isxRay() ? "ON" : "OFF"), sm.getWindowWidth() - infobarWidth + 20, 100, 0xffffffff,2);
-        r.drawText("Clicked at: (" + sm.cursorX + ", " + sm.cursorY + ")", sm.getWindowWidth() - infobarWidth + 20, 140, 0xffffffff,2);
+        r.drawText("Voxels: " + sm.terrain.getVoxelMemory() / (1024 * 1024) + " MB", sm.getWindowWidth() - infobarWidth + 20, 120, 0xffffffff,2);
+        r.drawText("Colors: " + sm.terrain.getColorRebuildTime() + " ms", sm.getWindowWidth() - infobarWidth + 20, 140, 0xffffffff,2);
+        r.drawText("Clicked at: (" + sm.cursorX + ", " + sm.cursorY + ")", sm.getWindowWidth() - infobarWidth + 20, 160, 0xffffffff,2);
 
-        if (selectedAnt != null) writeAntInfo(r, sm);
+        if (sm.antManager.isAlive(selectedAnt, selectedGeneration)) writeAntInfo(r, sm);
         else {
-            r.drawText("There are currently", sm.getWindowWidth() - infobarWidth + 20, 160, 0xffffffff, 2);
-            r.drawText(sm.antManager.getNumofAnts() + " ants", sm.getWindowWidth() - infobarWidth + 20, 180, 0xffffffff,2);
+            selectedAnt = AntStore.NO_ANT;
+            r.drawText("There are currently", sm.getWindowWidth() - infobarWidth + 20, 180, 0xffffffff, 2);
+            r.drawText(sm.antManager.getNumofAnts() + " ants", sm.getWindowWidth() - infobarWidth + 20, 200, 0xffffffff,2);
         }
 
         //Controls
@@ -58,56 +65,58 @@ public class ScreenInfo {
      * @param sm SimManager to get the dimensions of the window
      */
     private void writeAntInfo(Renderer r, SimManager sm){
-        if (selectedAnt instanceof AntEgg){
-            r.drawText("Ant egg", sm.getWindowWidth() - infobarWidth + 20, 160, 0xffffffff,2);
-            r.drawText("Food to hatch: " + (((AntEgg)selectedAnt).foodToHatchThresh - ((AntEgg)selectedAnt).foodEaten), sm.getWindowWidth() - infobarWidth + 20, 180, 0xffffffff,2);
-            r.drawText("Time to hatch: " + ((AntEgg)selectedAnt).getTimeToHatch(), sm.getWindowWidth() - infobarWidth + 20, 200, 0xffffffff,2);
+        int a = selectedAnt;
+        Ant ant = sm.antManager.getBehaviour(a);
+        if (ant instanceof AntEgg){
+            r.drawText("Ant egg", sm.getWindowWidth() - infobarWidth + 20, 180, 0xffffffff,2);
+            r.drawText("Food to hatch: " + (((AntEgg)ant).foodToHatchThresh - ((AntEgg)ant).getFoodEaten(a)), sm.getWindowWidth() - infobarWidth + 20, 200, 0xffffffff,2);
+            r.drawText("Time to hatch: " + ((AntEgg)ant).getTimeToHatch(a), sm.getWindowWidth() - infobarWidth + 20, 220, 0xffffffff,2);
         }
-        else if (selectedAnt instanceof QueenAnt){
-            r.drawText("Queen", sm.getWindowWidth() - infobarWidth + 20, 160, 0xffffffff,2);
-            r.drawText("Food level: " + ((QueenAnt)selectedAnt).getFoodEaten(), sm.getWindowWidth() - infobarWidth + 20, 180, 0xffffffff,2);
-            r.drawText("(New ant cost: " + ((QueenAnt)selectedAnt).foodToLayThresh + ")", sm.getWindowWidth() - infobarWidth + 20, 200, 0xffffffff,2);
+        else if (ant instanceof QueenAnt){
+            r.drawText("Queen", sm.getWindowWidth() - infobarWidth + 20, 180, 0xffffffff,2);
+            r.drawText("Food level: " + ((QueenAnt)ant).getFoodEaten(a), sm.getWindowWidth() - infobarWidth + 20, 200, 0xffffffff,2);
+            r.drawText("(New ant cost: " + ((QueenAnt)ant).foodToLayThresh + ")", sm.getWindowWidth() - infobarWidth + 20, 220, 0xffffffff,2);
         }
-        else if (selectedAnt instanceof ExplorerAnt){
-            r.drawText("Explorer", sm.getWindowWidth() - infobarWidth + 20, 160, 0xffffffff,2);
-            if ((selectedAnt).getCarrying() != null)
-                r.drawText("Carrying: " + selectedAnt.getCarrying(), sm.getWindowWidth() - infobarWidth + 20, 180, 0xffffffff,2);
-            switch (((ExplorerAnt)selectedAnt).getMode()){
+        else if (ant instanceof ExplorerAnt){
+            r.drawText("Explorer", sm.getWindowWidth() - infobarWidth + 20, 180, 0xffffffff,2);
+            if (ant.getCarrying(a) != null)
+                r.drawText("Carrying: " + ant.getCarrying(a), sm.getWindowWidth() - infobarWidth + 20, 200, 0xffffffff,2);
+            switch (((ExplorerAnt)ant).getMode(a)){
                 case 0:
-                    r.drawText("Mode: Getting out", sm.getWindowWidth() - infobarWidth + 20, 200, 0xffffffff,2);
+                    r.drawText("Mode: Getting out", sm.getWindowWidth() - infobarWidth + 20, 220, 0xffffffff,2);
                     break;
                 case 1:
-                    r.drawText("Mode: Finding food", sm.getWindowWidth() - infobarWidth + 20, 200, 0xffffffff,2);
+                    r.drawText("Mode: Finding food", sm.getWindowWidth() - infobarWidth + 20, 220, 0xffffffff,2);
                     break;
                 case 2:
-                    r.drawText("Mode: Going home", sm.getWindowWidth() - infobarWidth + 20, 200, 0xffffffff,2);
+                    r.drawText("Mode: Going home", sm.getWindowWidth() - infobarWidth + 20, 220, 0xffffffff,2);
                     break;
                 case 3:
-                    r.drawText("Mode: Storing food", sm.getWindowWidth() - infobarWidth + 20, 200, 0xffffffff,2);
+                    r.drawText("Mode: Storing food", sm.getWindowWidth() - infobarWidth + 20, 220, 0xffffffff,2);
                     break;
             }
         }
 
-        else if (selectedAnt instanceof MaintainingAnt){
-            r.drawText("Maintainer", sm.getWindowWidth() - infobarWidth + 20, 160, 0xffffffff,2);
-            if (((MaintainingAnt)selectedAnt).getCarriedEgg() != null)
-                r.drawText("Carrying egg: YES", sm.getWindowWidth() - infobarWidth + 20, 180, 0xffffffff,2);
+        else if (ant instanceof MaintainingAnt){
+            r.drawText("Maintainer", sm.getWindowWidth() - infobarWidth + 20, 180, 0xffffffff,2);
+            if (((MaintainingAnt)ant).getCarriedEgg(a) != AntStore.NO_ANT)
+                r.drawText("Carrying egg: YES", sm.getWindowWidth() - infobarWidth + 20, 200, 0xffffffff,2);
             else
-                r.drawText("Carrying egg: NO ", sm.getWindowWidth() - infobarWidth + 20, 180, 0xffffffff,2);
-            if (((MaintainingAnt)selectedAnt).isCarryingFood())
-                r.drawText("Carrying food: YES", sm.getWindowWidth() - infobarWidth + 20, 200, 0xffffffff,2);
+                r.drawText("Carrying egg: NO ", sm.getWindowWidth() - infobarWidth + 20, 200, 0xffffffff,2);
+            if (((MaintainingAnt)ant).isCarryingFood(a))
+                r.drawText("Carrying food: YES", sm.getWindowWidth() - infobarWidth + 20, 220, 0xffffffff,2);
             else
-                r.drawText("Carrying food: NO ", sm.getWindowWidth() - infobarWidth + 20, 200, 0xffffffff,2);
-            switch (((MaintainingAnt)selectedAnt).getMode()){
+                r.drawText("Carrying food: NO ", sm.getWindowWidth() - infobarWidth + 20, 220, 0xffffffff,2);
+            switch (((MaintainingAnt)ant).getMode(a)){
                 case 0:
-                    r.drawText("Mode: going up", sm.getWindowWidth() - infobarWidth + 20, 220, 0xffffffff,2);
+                    r.drawText("Mode: going up", sm.getWindowWidth() - infobarWidth + 20, 240, 0xffffffff,2);
                     break;
                 case 1:
-                    r.drawText("Mode: going down", sm.getWindowWidth() - infobarWidth + 20, 220, 0xffffffff,2);
+                    r.drawText("Mode: going down", sm.getWindowWidth() - infobarWidth + 20, 240, 0xffffffff,2);
                     break;
                 case 2:
                 case 3:
-                    r.drawText("Mode: Digging", sm.getWindowWidth() - infobarWidth + 20, 220, 0xffffffff,2);
+                    r.drawText("Mode: Digging", sm.getWindowWidth() - infobarWidth + 20, 240, 0xffffffff,2);
                     break;
             }
         }
@@ -122,10 +131,12 @@ public class ScreenInfo {
     }
 
     /**
-     * Sets pointer to an ant which information should be displayed
-     * @param ant Ant object (can be ExplorerAnt, QueenAnt, AntEgg or MaintainingAnt)
+     * Sets id of an ant which information should be displayed
+     * @param id id of the ant or NO_ANT
+     * @param generation generation of the id (see AntManager.getGeneration)
      */
-    public void setAnt(Ant ant){
-        selectedAnt = ant;
+    public void setAnt(int id, int generation){
+        selectedAnt = id;
+        selectedGeneration = generation;
     }
 }
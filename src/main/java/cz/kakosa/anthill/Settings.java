@@ -0,0 +1,145 @@
+package cz.kakosa.anthill;
+
+import cz.kakosa.anthill.voxels.ChunkedVoxelStorage;
+import cz.kakosa.anthill.voxels.StorageMode;
+
+import java.util.Random;
+
+/**
+ * Settings of the simulation given on the command line as "key=value" arguments.
+ */
+public class Settings {
+
+    /**
+     * Layout in which the voxels of the map are stored
+     */
+    public StorageMode storage = StorageMode.BYTE;
+
+    /**
+     * Number of ticks without a write after which a chunk of the chunked storage is packed
+     */
+    public int packIdleTicks = ChunkedVoxelStorage.IDLE_TICKS;
+
+    /**
+     * Number of chunks of the chunked storage checked for packing every tick
+     */
+    public int packChunksPerTick = ChunkedVoxelStorage.CHECKED_PER_TICK;
+
+    /**
+     * Dimensions of the map. Zero means the map is as big as the viewport.
+     */
+    public int worldWidth = 0, worldHeight = 0;
+
+    /**
+     * Path to a world file. If set, voxels and colours are memory-mapped from this file instead of being kept on the heap
+     * and a map stored in the file is reused instead of generating a new one.
+     */
+    public String worldFile = null;
+
+    /**
+     * If true, colours are not precomputed for the whole map but only for tiles the camera looks at (see TileColorCache)
+     */
+    public boolean tileColors = false;
+
+    /**
+     * Memory bound of the tile colour cache in megabytes
+     */
+    public int colorCacheMegabytes = 64;
+
+    /**
+     * Seed of the world. Maps generated with the same seed and size are the same. Random if not given.
+     */
+    public long seed = new Random().nextLong();
+
+    /**
+     * Path to a saved map (see WorldFile) to start with instead of generating a new one, null to generate
+     */
+    public String loadFile = null;
+
+    /**
+     * Path to save the map to once it is generated or loaded, null to not save it
+     */
+    public String saveFile = null;
+
+    /**
+     * If true, colour map is saved together with the voxels, so that it doesn't have to be computed after loading
+     */
+    public boolean saveColors = false;
+
+    /**
+     * Number of threads the ants are ticked with in parallel tiles of the map (see TiledTicker). Zero ticks them one by one on the simulation thread.
+     */
+    public int antThreads = 0;
+
+    /**
+     * Parses command line arguments. Unknown keys and malformed values end with IllegalArgumentException.
+     * @param args arguments in format key=value
+     * @return Settings with default values overwritten by the arguments
+     */
+    public static Settings parse(String[] args) {
+        Settings settings = new Settings();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0)
+                throw new IllegalArgumentException("Argument " + arg + " is not in format key=value");
+            String key = arg.substring(0, eq);
+            String value = arg.substring(eq + 1);
+            switch (key) {
+                case "storage":
+                    settings.storage = StorageMode.valueOf(value.toUpperCase());
+                    break;
+                case "packidle":
+                    settings.packIdleTicks = Integer.parseInt(value);
+                    if (settings.packIdleTicks < 1)
+                        throw new IllegalArgumentException("Chunks can't be packed after " + value + " ticks");
+                    break;
+                case "packrate":
+                    settings.packChunksPerTick = Integer.parseInt(value);
+                    if (settings.packChunksPerTick < 1)
+                        throw new IllegalArgumentException("Number of chunks checked for packing has to be positive, not " + value);
+                    break;
+                case "size": {
+                    int x = value.indexOf('x');
+                    if (x < 0)
+                        throw new IllegalArgumentException("Size " + value + " is not in format WIDTHxHEIGHT");
+                    settings.worldWidth = Integer.parseInt(value.substring(0, x));
+                    settings.worldHeight = Integer.parseInt(value.substring(x + 1));
+                    break;
+                }
+                case "world":
+                    settings.worldFile = value;
+                    break;
+                case "colors":
+                    if (! value.equals("tiles") && ! value.equals("full"))
+                        throw new IllegalArgumentException("Colors can be tiles or full, not " + value);
+                    settings.tileColors = value.equals("tiles");
+                    break;
+                case "colorcache":
+                    settings.colorCacheMegabytes = Integer.parseInt(value);
+                    break;
+                case "seed":
+                    settings.seed = Long.parseLong(value);
+                    break;
+                case "load":
+                    settings.loadFile = value;
+                    break;
+                case "save":
+                    settings.saveFile = value;
+                    break;
+                case "savecolors":
+                    settings.saveColors = Boolean.parseBoolean(value);
+                    break;
+                case "antthreads":
+                    settings.antThreads = Integer.parseInt(value);
+                    if (settings.antThreads < 0)
+                        throw new IllegalArgumentException("Number of ant threads can't be negative");
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument " + key);
+            }
+        }
+        if (settings.loadFile != null && settings.worldFile != null)
+            throw new IllegalArgumentException("Saved map can't be loaded into a world file");
+        return settings;
+    }
+}
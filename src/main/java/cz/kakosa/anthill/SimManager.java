@@ -1,5 +1,7 @@
 package cz.kakosa.anthill;
 
+import cz.kakosa.anthill.voxels.ColorMap;
+import cz.kakosa.anthill.voxels.ColorPalette;
 import cz.kakosa.pixelsim.*;
 
 import java.awt.event.KeyEvent;
@@ -21,6 +23,8 @@ public class SimManager extends AbstractSimulation{
 
     public Random r;
 
+    private Settings settings;
+
     private boolean simRunning;
 
     private boolean paused;
@@ -34,6 +38,9 @@ public class SimManager extends AbstractSimulation{
     private int windowWidth; //Window dimensions of the current object
     private int windowHeight;
 
+    private int[] rowBuffer; //Rows of the visible layer copied from the color map during rendering
+    private int[] mapRowBuffer;
+
     float AntTimeKeeper = 0; //Keeps how much time passed since last update
 
     AntManager antManager;
@@ -50,13 +57,15 @@ public class SimManager extends AbstractSimulation{
      * @param width Width in pixels
      * @param height Height in pixels
      * @param infobar Width of the gray bar that holds all the info
+     * @param settings Settings given on the command line
      */
-    public SimManager(int width, int height, int infobar) {
+    public SimManager(int width, int height, int infobar, Settings settings) {
+        this.settings = settings;
         this.windowWidth = width;
         this.windowHeight = height;
         isTitleScreen = true;
         isGenerating = false;
-        r = new Random();
+        r = RandomStreams.get(settings.seed, RandomStreams.ANTS, 0);
 
         screenInfo = new ScreenInfo(infobar);
     }
@@ -76,15 +85,22 @@ public class SimManager extends AbstractSimulation{
                 }
 
             }
+            terrain.flushChanges(); // swaps in colours rebuilt in the background even when paused
 
         }
         else {
             if (isGenerating){
 
-                terrain = new Terrain(this, windowWidth - INFOBAR_WIDTH, windowHeight);
+                int mapWidth = settings.worldWidth > 0 ? settings.worldWidth : windowWidth - INFOBAR_WIDTH;
+                int mapHeight = settings.worldHeight > 0 ? settings.worldHeight : windowHeight;
+                if (antManager != null)
+                    antManager.close(); // stops the tile threads before their terrain goes away
+                if (terrain != null)
+                    terrain.close(); // lets the new terrain open the same world file
+                terrain = new Terrain(this, mapWidth, mapHeight, settings);
                 visibleLayer = terrain.getDepth()/2;
 
-                antManager = new AntManager(terrain, r);
+                antManager = new AntManager(terrain, r, settings.antThreads);
                 //terrain.updateCurrentState();
 
                 isGenerating = false;
@@ -106,14 +122,7 @@ public class SimManager extends AbstractSimulation{
     @Override
     public void render(SimContainer sc, Renderer r) {
         if (!isTitleScreen && !isGenerating){
-            int[][][] colors = terrain.getColorMap();
-            for (int y = 0; y < windowHeight; y++) {
-                for (int x = 0; x < windowWidth - screenInfo.getInfobarWidth(); x++) {
-                    if (locX + (x/zoom) < terrain.getWidth() && locX + (x/zoom) >= 0 && locY + (y/zoom) < terrain.getHeight() && locY + (y/zoom)>= 0) {
-                        r.setPixel(x, y, colors[locX + (x / zoom)][locY + (y / zoom)][(int)visibleLayer]);
-                    }
-                }
-            }
+            renderLayer(r);
             screenInfo.render(this, r);
         }
         else{
@@ -124,6 +133,50 @@ public class SimManager extends AbstractSimulation{
         }
     }
 
+    /**
+     * Renders the visible layer of the map row by row. Each row of the layer is a continuous block of the color map,
+     * so its colour codes are copied at once, x-rayed if x-ray is on, turned into colours by the palette and then only stretched when zoomed in.
+     * @param r Renderer used to render the scene
+     */
+    private void renderLayer(Renderer r) {
+        ColorMap colors = terrain.getColorMap();
+        ColorPalette palette = terrain.getPalette();
+        int viewWidth = windowWidth - screenInfo.getInfobarWidth();
+        int z = (int)visibleLayer;
+        if (rowBuffer == null || rowBuffer.length < viewWidth) {
+            rowBuffer = new int[viewWidth];
+            mapRowBuffer = new int[viewWidth];
+        }
+        int xStart = Math.max(0, -locX * zoom);
+        int xEnd = Math.min(viewWidth, (terrain.getWidth() - locX) * zoom);
+        if (xStart >= xEnd)
+            return;
+        int mapX = locX + xStart / zoom;
+        int mapLength = locX + (xEnd - 1) / zoom - mapX + 1;
+        int lastMapY = -1;
+        for (int y = 0; y < windowHeight; y++) {
+            int mapY = locY + y / zoom;
+            if (mapY < 0 || mapY >= terrain.getHeight())
+                continue;
+            if (mapY != lastMapY) { // rows repeated by zoom are copied only once
+                if (zoom == 1) {
+                    colors.getRow(z, mapY, mapX, mapLength, rowBuffer, 0);
+                    terrain.xRayRow(z, mapY, mapX, mapLength, rowBuffer);
+                    palette.resolve(rowBuffer, 0, mapLength);
+                }
+                else {
+                    colors.getRow(z, mapY, mapX, mapLength, mapRowBuffer, 0);
+                    terrain.xRayRow(z, mapY, mapX, mapLength, mapRowBuffer);
+                    palette.resolve(mapRowBuffer, 0, mapLength);
+                    for (int x = xStart; x < xEnd; x++) {
+                        rowBuffer[x - xStart] = mapRowBuffer[locX + x / zoom - mapX];
+                    }
+                }
+                lastMapY = mapY;
+            }
+            r.setPixels(xStart, y, rowBuffer, 0, xEnd - xStart);
+        }
+    }
 
     /**
      * Takes care of all the inputs while the simulation is running
@@ -137,14 +190,15 @@ public class SimManager extends AbstractSimulation{
             visibleLayer -= 0.4;
         }
 
+        int viewWidth = windowWidth - screenInfo.getInfobarWidth();
         if (zoom > 1 && (sc.getInput().isKeyDown(KeyEvent.VK_S))) {
             zoom /= 2;
-            locX -= terrain.getWidth() / zoom / 4;
-            locY -= terrain.getHeight() / zoom / 4;
+            locX -= viewWidth / zoom / 4;
+            locY -= windowHeight / zoom / 4;
         }
         if (zoom <= 16 && (sc.getInput().isKeyDown(KeyEvent.VK_W))) {
-            locX += terrain.getWidth() / zoom / 4;
-            locY += terrain.getHeight() / zoom / 4;
+            locX += viewWidth / zoom / 4;
+            locY += windowHeight / zoom / 4;
             zoom *= 2;
         }
 
@@ -157,13 +211,11 @@ public class SimManager extends AbstractSimulation{
 
         if (sc.getInput().isKeyDown(KeyEvent.VK_E)){
             if (terrain.getVisDepth() < 50) {
-                simRunning = false;
                 terrain.setVisDepth(terrain.getVisDepth() + 10);
             }
         }
         if (sc.getInput().isKeyDown(KeyEvent.VK_D)){
             if (terrain.getVisDepth() > 30) {
-                simRunning = false;
                 terrain.setVisDepth(terrain.getVisDepth() - 10);
             }
         }
@@ -175,13 +227,13 @@ public class SimManager extends AbstractSimulation{
         if (locX > -50 && (sc.getInput().isKeyDown(KeyEvent.VK_LEFT) || sc.getInput().isKey(KeyEvent.VK_LEFT))) {
             locX -= 2;
         }
-        if (locX <= terrain.getWidth() + 50 - terrain.getWidth() / zoom && (sc.getInput().isKeyDown(KeyEvent.VK_RIGHT) || sc.getInput().isKey(KeyEvent.VK_RIGHT))) {
+        if (locX <= terrain.getWidth() + 50 - viewWidth / zoom && (sc.getInput().isKeyDown(KeyEvent.VK_RIGHT) || sc.getInput().isKey(KeyEvent.VK_RIGHT))) {
             locX += 2;
         }
         if (locY > -50 && (sc.getInput().isKeyDown(KeyEvent.VK_UP) || sc.getInput().isKey(KeyEvent.VK_UP))) {
             locY -= 2;
         }
-        if (locY <= terrain.getHeight() + 50 - terrain.getHeight() / zoom && (sc.getInput().isKeyDown(KeyEvent.VK_DOWN) || sc.getInput().isKey(KeyEvent.VK_DOWN))) {
+        if (locY <= terrain.getHeight() + 50 - windowHeight / zoom && (sc.getInput().isKeyDown(KeyEvent.VK_DOWN) || sc.getInput().isKey(KeyEvent.VK_DOWN))) {
             locY += 2;
         }
 
@@ -189,14 +241,14 @@ public class SimManager extends AbstractSimulation{
             cursorX = sc.getInput().getMouseX()/zoom + locX;
             cursorY = sc.getInput().getMouseY()/zoom + locY;
 
-            Ant selected = null;
+            int selected = AntStore.NO_ANT;
             for (int z = (int)visibleLayer; z > 0; z--) {
-                    if (antManager.getAntMap()[cursorX][cursorY][z] != null){
-                        selected = antManager.getAntMap()[cursorX][cursorY][z];
+                    if (antManager.getAntAt(cursorX, cursorY, z) != AntStore.NO_ANT){
+                        selected = antManager.getAntAt(cursorX, cursorY, z);
                         break;
                     }
             }
-            screenInfo.setAnt(selected);
+            screenInfo.setAnt(selected, selected == AntStore.NO_ANT ? 0 : antManager.getGeneration(selected));
         }
 
         if(sc.getInput().isKeyDown(KeyEvent.VK_X)){
@@ -207,10 +259,18 @@ public class SimManager extends AbstractSimulation{
 
     /**
      * Starts the program
-     * @param args Not used
+     * @param args Settings in format key=value (see Settings)
      */
     public static void main(String args[]){
-            SimContainer sc = new SimContainer(new SimManager(WIDTH, HEIGHT, INFOBAR_WIDTH), WIDTH, HEIGHT);
+            SimManager sm = new SimManager(WIDTH, HEIGHT, INFOBAR_WIDTH, Settings.parse(args));
+            // the window exits the JVM when closed, the world file is closed on the way out
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                if (sm.antManager != null)
+                    sm.antManager.close();
+                if (sm.terrain != null)
+                    sm.terrain.close();
+            }, "Close terrain"));
+            SimContainer sc = new SimContainer(sm, WIDTH, HEIGHT);
             sc.start();
     }
 
@@ -0,0 +1,83 @@
+package cz.kakosa.anthill;
+
+import cz.kakosa.anthill.voxels.StorageMode;
+
+import java.util.Random;
+
+/**
+ * Compares voxel storages on the box scans ants do when they look around. The same map (given by seed= and size= arguments, see Settings)
+ * is generated in every storage and searched at the same random places under the surface:
+ * food in visible radius of an explorer, egg around a maintaining ant and a voxel by voxel look at a small cube.
+ * Checksums of the results have to be the same for all storages.
+ */
+public class StorageBenchmark {
+
+    private static final int PLACES = 20000, ROUNDS = 5;
+
+    /**
+     * Runs the benchmark
+     * @param args Settings in format key=value, storage is ignored since all storages are measured
+     */
+    public static void main(String[] args) {
+        Settings settings = Settings.parse(args);
+        int width = settings.worldWidth > 0 ? settings.worldWidth : SimManager.WIDTH;
+        int height = settings.worldHeight > 0 ? settings.worldHeight : SimManager.HEIGHT;
+        SimManager sm = new SimManager(SimManager.WIDTH, SimManager.HEIGHT, SimManager.INFOBAR_WIDTH, settings);
+        int food = Material.LEAVES.getMask() | Material.FOOD.getMask();
+        int egg = Material.EGG.getMask();
+        for (StorageMode mode : StorageMode.values()) {
+            settings.storage = mode;
+            Terrain t = new Terrain(sm, width, height, settings);
+            Random r = new Random(settings.seed);
+            int[] places = new int[3 * PLACES];
+            for (int i = 0; i < places.length; i += 3) {
+                places[i] = r.nextInt(width);
+                places[i + 1] = r.nextInt(height);
+                places[i + 2] = Math.max(0, t.getSurfaceBelow(places[i], places[i + 1], t.getDepth()) - r.nextInt(30));
+            }
+            long foodTime = 0, eggTime = 0, cubeTime = 0, checksum = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < places.length; i += 3)
+                    checksum += hash(t.findInBox(places[i] - 10, places[i + 1] - 10, places[i + 2] - 10, places[i] + 10, places[i + 1] + 10, places[i + 2] + 10, food));
+                long afterFood = System.nanoTime();
+                for (int i = 0; i < places.length; i += 3)
+                    checksum += hash(t.findInBox(places[i] - 4, places[i + 1] - 4, places[i + 2] - 3, places[i] + 4, places[i + 1] + 4, places[i + 2] + 4, egg));
+                long afterEgg = System.nanoTime();
+                for (int i = 0; i < places.length; i += 3)
+                    checksum += countSolid(t, places[i], places[i + 1], places[i + 2], 5);
+                long end = System.nanoTime();
+                // first round only warms up
+                if (round > 0) {
+                    foodTime += afterFood - start;
+                    eggTime += afterEgg - afterFood;
+                    cubeTime += end - afterEgg;
+                }
+            }
+            long searches = (long) PLACES * (ROUNDS - 1);
+            System.out.printf("%-8s food %6d ns, egg %5d ns, cube %6d ns, memory %5d MB, checksum %d%n", mode,
+                    foodTime / searches, eggTime / searches, cubeTime / searches, t.getVoxelMemory() / 1000000, checksum);
+            t.close();
+        }
+    }
+
+    private static long hash(int[] pos) {
+        return pos == null ? 0 : (pos[0] * 31L + pos[1]) * 31 + pos[2];
+    }
+
+    /**
+     * Counts solid voxels in a cube one voxel at a time, like the ants did before box searches
+     */
+    private static int countSolid(Terrain t, int x0, int y0, int z0, int rad) {
+        int count = 0;
+        for (int z = z0 + rad; z >= z0 - rad; z--) {
+            for (int x = x0 - rad; x <= x0 + rad; x++) {
+                for (int y = y0 - rad; y <= y0 + rad; y++) {
+                    if (t.checkBoundaries(x, y, z) && t.getVoxelAt(x, y, z).isSolid())
+                        count++;
+                }
+            }
+        }
+        return count;
+    }
+}
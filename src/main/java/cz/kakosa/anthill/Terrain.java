@@ -1,161 +1,637 @@
 package cz.kakosa.anthill;
 
+import cz.kakosa.anthill.voxels.ArrayColorMap;
+import cz.kakosa.anthill.voxels.ColorMap;
+import cz.kakosa.anthill.voxels.ColorPalette;
+import cz.kakosa.anthill.voxels.MappedWorld;
+import cz.kakosa.anthill.voxels.SolidMap;
+import cz.kakosa.anthill.voxels.SphereStencil;
+import cz.kakosa.anthill.voxels.TileColorCache;
+import cz.kakosa.anthill.voxels.TileTask;
+import cz.kakosa.anthill.voxels.VoxelStorage;
+import cz.kakosa.anthill.voxels.WorldFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Terrain is the map where the simulation happens.
  * Complete with random map generation and arrays that make rendering easier.
+ * A memory-mapped terrain holds its world file open until it is closed.
  */
-public class Terrain implements Runnable{
+public class Terrain implements AutoCloseable {
 
     private SimManager sm;
 
+    /**
+     * Seed the random streams of the generation are derived from
+     */
+    private final long seed;
+
     /**
      * Voxels store each pixel of the map as a block of material.
      */
-    private Material[][][] voxels;
+    private VoxelStorage voxels;
+
+    /**
+     * Bit for every voxel telling whether it is solid. Kept up to date by every write into voxels, so the ants can ask for solidity without touching the materials.
+     */
+    private SolidMap solid;
+
+    /**
+     * Materials that can be dug through by makeSphere (everything but stones and ants)
+     */
+    private static final int DIGGABLE_MASK = ~(Material.STONE.getMask() | Material.RED_ANT.getMask());
 
     /**
      * Colormap is used for rendering. The camera sees not only current slice but also past it up to a certain distance.
      * Hence it is faster to have all these layers preloaded instead of computing each air pixels value based on what's bellow it every time the camera moves.
      */
-    private int[][][] colorMap;
+    private ColorMap colorMap;
+
+    /**
+     * World file holding voxels and colour map when the map is memory-mapped, null otherwise
+     */
+    private MappedWorld world;
+
+    /**
+     * Turns colour codes of the colour map into colours for rendering
+     */
+    private final ColorPalette palette = new ColorPalette();
+
+    private static final int NOT_DIRTY = Integer.MAX_VALUE;
+
+    /**
+     * Size of the tiles of columns generated in parallel. Multiple of the chunk size of the chunked voxel storage, so that tiles don't share chunks.
+     */
+    private static final int GENERATION_TILE = 64;
+
+    /**
+     * Size of the tiles of columns recomputed in parallel by updateColor
+     */
+    private static final int COLOR_TILE = 32;
+
+    private volatile long colorRebuildMillis;
+
+    /**
+     * Listeners the changes of the voxels are reported to in flushChanges. The colour map is kept up to date by one of them.
+     */
+    private final List<TerrainListener> listeners = new ArrayList<>();
+
+    /**
+     * Changes are recorded only when the map is complete, so the generation and loading are not reported to the listeners
+     */
+    private boolean recording;
+
+    /**
+     * Columns changed since the last flushChanges. Each column is listed once, dirtyFrom and dirtyTo (indexed by x * height + y) hold the changed span of the column.
+     * Ants ticked in parallel tiles never change the same column from two threads at once, so only the list itself is guarded by dirtyLock.
+     */
+    private int[] dirtyColumns = new int[64];
+    private int dirtyCount;
+    private int[] dirtyFrom, dirtyTo;
+    private final Object dirtyLock = new Object();
+
+    /**
+     * Visual depth the colour map is computed for. It lags behind visDepth while a new colour map is built in the background.
+     */
+    private int colorVisDepth;
+
+    /**
+     * Colour map being built in the background after the user changed visual depth, null if there is none.
+     * Only the newest rebuild is kept, older ones notice their generation is outdated and stop.
+     */
+    private ColorRebuild rebuild;
+    private volatile int rebuildGeneration;
+
+    /**
+     * Columns changed since the newest rebuild was started. They are recomputed in the new colour map before it is swapped in.
+     */
+    private BitSet rebuildEdits;
+
+    /**
+     * Single thread running the rebuilds one after another, created with the first rebuild
+     */
+    private ExecutorService rebuilder;
 
     private int width, height, depth = 220;
     private int visDepth = 50;
-    private Random r;
 
     /**
      * If x-ray is on. User can see better underground.
-     * It is achived througn the "light" that is manifestes as a gradient of a materials color in colorMap being able to go through not only air but air and then solid blocks (until it encounters air for the second time).
+     * It is achived througn the "light" that is manifestes as a gradient of a materials color being able to go through not only air but air and then solid blocks (until it encounters air for the second time).
+     * The colour map is always computed without x-ray, x-ray is applied to the rendered rows (see xRayRow).
      */
     private boolean xRay;
 
     /**
-     *
+     * Creates the map. If settings contain a world file, the map is memory-mapped from it and generated only if the file doesn't hold a complete map yet.
+     * If settings contain a saved map to load, the map is read from it instead of being generated. The map is saved afterwards if settings say so.
      * @param sm
-     * @param width
-     * @param height
+     * @param width width of a new map
+     * @param height height of a new map
+     * @param settings settings with storage layout, world file and saved maps
      */
-    public Terrain(SimManager sm, int width, int height) {
+    public Terrain(SimManager sm, int width, int height, Settings settings) {
         this.sm = sm;
+        this.seed = settings.seed;
+        boolean generated = false;
+        boolean colored = false;
+        WorldFile saved = null;
+        if (settings.worldFile != null) {
+            try {
+                world = MappedWorld.open(Paths.get(settings.worldFile), width, height, depth);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            width = world.getWidth();
+            height = world.getHeight();
+            depth = world.getDepth();
+            voxels = world.getVoxels();
+            colorMap = world.getColors();
+            generated = world.isGenerated();
+            colored = generated && world.hasColors(visDepth);
+        }
+        else if (settings.loadFile != null) {
+            try {
+                saved = WorldFile.open(Paths.get(settings.loadFile));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            width = saved.getWidth();
+            height = saved.getHeight();
+            depth = saved.getDepth();
+            voxels = settings.storage.create(width, height, depth, settings.packIdleTicks, settings.packChunksPerTick);
+        }
+        else {
+            voxels = settings.storage.create(width, height, depth, settings.packIdleTicks, settings.packChunksPerTick);
+        }
         this.width = width;
         this.height = height;
-        voxels = new Material[width][height][depth];
-        colorMap = new int[width][height][depth];
+        solid = new SolidMap(width, height, depth);
+        dirtyFrom = new int[width * height];
+        dirtyTo = new int[width * height];
+        Arrays.fill(dirtyFrom, NOT_DIRTY);
+        rebuildEdits = new BitSet(width * height);
+        if (settings.tileColors)
+            colorMap = new TileColorCache(width, height, depth, this::colorTile, settings.colorCacheMegabytes * 1024L * 1024L);
+        else if (world == null)
+            colorMap = new ArrayColorMap(width, height, depth);
 
-        generateTerrain();
+        if (saved != null) {
+            try (WorldFile file = saved) {
+                file.readVoxels(voxels, solid);
+                voxels.compact();
+                colored = file.hasColors(visDepth) && colorMap.isPrecomputed();
+                if (colored)
+                    file.readColors(colorMap);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        else if (generated) {
+            solid.rebuild(voxels);
+            if (clearAnts() > 0)
+                colored = false;
+        }
+        else {
+            generateTerrain();
+        }
 
-        setVisDepth(visDepth);
+        if (! colored && colorMap.isPrecomputed()) {
+            if (world != null)
+                world.invalidateColors();
+            updateColor(false);
+            if (world != null)
+                world.setColorsValid(visDepth);
+        }
+        colorVisDepth = visDepth;
 
-        updateColor(false);
+        if (settings.saveFile != null)
+            save(Paths.get(settings.saveFile), settings.saveColors);
+        listeners.add(new ColorUpdater());
+        recording = true;
     }
 
     /**
-     * Starts a new thread in which it generates the world. Stone board on the bottom first, valleys second, then dirt and stones, then trees and lastly food
+     * Registers a listener of the changes of the voxels. Changes are reported from flushChanges, on the thread of the simulation.
+     * @param listener listener to add
      */
-    private void generateTerrain() {
-        r = sm.r;
+    public synchronized void addListener(TerrainListener listener) {
+        listeners.add(listener);
+    }
 
-        //Make floor
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                voxels[x][y][0] = Material.STONE;
+    /**
+     * Unregisters a listener of the changes of the voxels
+     * @param listener listener to remove
+     */
+    public synchronized void removeListener(TerrainListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Saves the map into a file that can be loaded later (see WorldFile). Ants are not stored anywhere but in the voxels, so the map should be saved before ants are created.
+     * @param file path to the file
+     * @param withColors if true and the colour map is precomputed, colours are saved too
+     */
+    public synchronized void save(Path file, boolean withColors) {
+        try {
+            WorldFile.save(file, voxels, withColors && colorMap.isPrecomputed() ? colorMap : null, colorVisDepth);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Generates the world. Stone board on the bottom first, valleys second, then dirt and stones, then trees and lastly food.
+     * Random parameters of the features are drawn first from their own streams derived from the seed, then everything but the trees is written in parallel tiles of columns.
+     * Each tile writes only its own columns, features crossing tile borders are written piece by piece by every tile they touch.
+     */
+    private void generateTerrain() {
+        final int[][] valleys = generateValleys(RandomStreams.get(seed, RandomStreams.VALLEYS, 0));
+        final int[][] stones = generateStones(RandomStreams.get(seed, RandomStreams.STONES, 0));
+        TileTask.run(width, height, GENERATION_TILE, (x0, y0, x1, y1) -> {
+            int stone = Material.STONE.getId();
+            for (int x = x0; x < x1; x++) {
+                for (int y = y0; y < y1; y++) {
+                    writeVoxel(x, y, 0, stone); // floor
+                    makeValley(valleys, x, y);
+                    fillGround(x, y);
+                }
             }
+            for (int[] sphere : stones)
+                fillSphere(sphere, stone, VoxelStorage.ANY, x0, y0, x1, y1);
+        });
+
+        generateTrees();
+
+        final List<int[]> food = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            generateFood(RandomStreams.get(seed, RandomStreams.FOOD, i), food);
         }
-        Runnable runnable = () -> {
-            generateValleys(r);
-            fillGround();
-            generateStones(r);
-            generateTrees(r);
-            for (int i = 0; i < 7; i++) {
-                generateFood(r);
+        TileTask.run(width, height, GENERATION_TILE, (x0, y0, x1, y1) -> {
+            for (int[] sphere : food)
+                fillSphere(sphere, Material.FOOD.getId(), Material.AIR.getMask(), x0, y0, x1, y1);
+        });
+        voxels.compact();
+        if (world != null)
+            world.setGenerated();
+    }
+
+    /**
+     * Ants are not stored in the world file, so ants and eggs left in a reopened map are replaced with air
+     * @return number of removed ants and eggs
+     */
+    private int clearAnts() {
+        int ant = Material.RED_ANT.getId(), egg = Material.EGG.getId();
+        int removed = 0;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                for (int z = 0; z < depth; z++) {
+                    int id = voxels.getId(x, y, z);
+                    if (id == ant || id == egg) {
+                        writeVoxel(x, y, z, Material.AIR.getId());
+                        removed++;
+                    }
+                }
             }
-        };
+        }
+        return removed;
+    }
 
-        Thread t = new Thread(runnable);
-        t.start();
+    /**
+     * Stops the colour rebuild and closes the world file, if there is any. The terrain can't be changed after that.
+     * A rebuild stopped this way leaves the stored colours invalid, so they are recomputed when the world file is opened again.
+     */
+    @Override
+    public void close() {
+        rebuildGeneration++;
+        if (rebuilder != null)
+            rebuilder.shutdown();
+        if (world != null) {
+            try {
+                world.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
     }
 
     /**
      * Updates the 3D array of pixels to be displayed. All slices are preloaded at once so that the array doesn't have to be updated every time user changes camera height.
-     * @param partial if partial is true, rendering starts at half of the world since the bottom half is black anyway.
+     * Columns are independent, so the map is split into tiles which are recomputed in parallel.
+     * @param partial if partial is true, solid underground bellow the lowest air of each column is skipped since it is black anyway.
      */
     public synchronized void updateColor(boolean partial){
-        for (int z = partial ? 55 : 0; z < depth; z++) {
-            for (int x = 0; x < width; x++) {
-                for (int y = 0; y < height; y++) {
-                    if (voxels[x][y][z] == null) voxels[x][y][z] = Material.AIR;
-                    if (voxels[x][y][z].isSolid()){
-                        if (! xRay){
-                            colorMap[x][y][z] = 0xff000000;
-                        }
-                        visColumn(x,y,z);
+        colorVisDepth = visDepth;
+        if (! colorMap.isPrecomputed()) {
+            colorMap.clear();
+            return;
+        }
+        long start = System.nanoTime();
+        TileTask.run(width, height, COLOR_TILE, (x0, y0, x1, y1) -> {
+            for (int x = x0; x < x1; x++) {
+                for (int y = y0; y < y1; y++) {
+                    recolorColumn(colorMap, x, y, partial ? Math.max(0, solid.lowestAir(x, y) - 1) : 0, depth, colorVisDepth);
+                }
+            }
+        });
+        colorRebuildMillis = (System.nanoTime() - start) / 1000000;
+    }
+
+    /**
+     * Colour map built in the background for new visual depth. The simulation keeps running meanwhile and the old colour map is still displayed and maintained.
+     */
+    private class ColorRebuild implements Runnable {
+
+        private final int generation;
+        private final int visDepth;
+        private final ColorMap target;
+        private volatile boolean finished;
+
+        /**
+         * @param generation generation of the rebuild, the rebuild stops when a newer one is started
+         * @param visDepth visual depth to build the colours for
+         * @param target colour map to fill
+         */
+        private ColorRebuild(int generation, int visDepth, ColorMap target) {
+            this.generation = generation;
+            this.visDepth = visDepth;
+            this.target = target;
+        }
+
+        @Override
+        public void run() {
+            if (generation != rebuildGeneration)
+                return;
+            long start = System.nanoTime();
+            TileTask.run(width, height, COLOR_TILE, (x0, y0, x1, y1) -> {
+                if (generation != rebuildGeneration)
+                    return; // superseded, no need to finish
+                for (int x = x0; x < x1; x++) {
+                    for (int y = y0; y < y1; y++) {
+                        recolorColumn(target, x, y, 0, depth, visDepth);
                     }
                 }
+            });
+            if (generation != rebuildGeneration)
+                return;
+            colorRebuildMillis = (System.nanoTime() - start) / 1000000;
+            finished = true;
+        }
+    }
+
+    /**
+     * Starts building colours for current visual depth in the background. Tile colours are just forgotten, they are computed again when displayed.
+     * Memory-mapped colours are rebuilt in place since a second copy would be as big as the world file.
+     */
+    private void rebuildColors() {
+        if (! colorMap.isPrecomputed()) {
+            colorVisDepth = visDepth;
+            colorMap.clear();
+            return;
+        }
+        ColorMap target;
+        if (world != null) {
+            synchronized (world) {
+                world.invalidateColors();
             }
+            target = colorMap;
+            colorVisDepth = visDepth;
+        }
+        else {
+            target = new ArrayColorMap(width, height, depth);
         }
+        rebuildEdits.clear();
+        rebuild = new ColorRebuild(++rebuildGeneration, visDepth, target);
+        if (rebuilder == null)
+            rebuilder = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "Color rebuild");
+                thread.setDaemon(true);
+                return thread;
+            });
+        rebuilder.execute(rebuild);
     }
 
     /**
-     * Updates world color pixels on top of given coordinates. Base color at the (x,y,z) and dimming gradient as the color goes up. If x-ray is off, only pixels up to the last air pixels are updated.
-     * If x-ray is on, pixels up to the second encounter with air are updated (Making user able to see tunnels when camera is obscured by solid blocks)
+     * Recomputes colours of a vertical span of a column in one pass from the bottom up. Every solid block with air above it lights the air above with its colour,
+     * dimming as it goes up, up to visual depth. Solid pixels are black (x-ray is added when rendering, see xRayRow).
+     * @param target colour map to write to
      * @param x x position 0 to width
      * @param y y position 0 to height
-     * @param z z position 0 to depth
-     */
-    public void visColumn(int x, int y, int z){
-
-        if (z < depth -1 && (voxels[x][y][z + 1] == null || ! voxels[x][y][z + 1].isSolid())){
-            int origColor = voxels[x][y][z].getColor();
-            int origR = (origColor - 0xff000000) / 0x10000;
-            int origG = ((origColor - 0xff000000) % 0x10000) / 0x100;
-            int origB = ((origColor - 0xff000000) % 0x100);
-            int airOccurence = 0;
-
-            colorMap[x][y][z + 1] = origColor;
-            int z0 = z + 1;
-            int d = 1;
-            float changeRate = 0.92f;
-            float dc = 1f; //Slouží k vytvoření gradientu
-            while(z0 < depth && d < visDepth && ( voxels[x][y][z0] == null  || ! voxels[x][y][z0].isSolid())){
-                colorMap[x][y][z0] = (int)(origR * dc) * 0x10000 + (int)(origG * dc) * 0x100 + (int)(origB * dc);
-                dc *= changeRate;
-                d++;
-                z0++;
-            }
-            if (xRay){
-                while(z0 + 1 < depth && d < visDepth && ( voxels[x][y][z0 + 1] != null  && voxels[x][y][z0 + 1].isSolid())){
-                    colorMap[x][y][z0] = (int)(origR * dc) * 0x10000 + (int)(origG * dc) * 0x100 + (int)(origB * dc);
-                    dc *= changeRate;
-                    d++;
-                    z0++;
+     * @param zFrom lowest recomputed z (inclusive)
+     * @param zTo highest recomputed z (exclusive)
+     * @param visDepth visual depth the colours are computed for
+     */
+    private void recolorColumn(ColorMap target, int x, int y, int zFrom, int zTo, int visDepth) {
+        int base = -1; // solid block whose colour lights the voxels above
+        Material baseMaterial = null;
+        // under the lowest air everything is solid with solid above it, so it is black (or red ant)
+        int floor = Math.min(zTo, Math.max(0, solid.lowestAir(x, y) - 1));
+        for (int z = zFrom; z < floor; ) {
+            int end = Math.min(floor, voxels.runEnd(x, y, z));
+            int code = ColorPalette.code(voxels.getId(x, y, z), 0);
+            for (; z < end; z++)
+                target.set(x, y, z, code);
+        }
+        // colours at zFrom can be lit only by blocks less than visual depth bellow it
+        // the column is walked by runs of the same material, only the top of a solid run can be a base
+        for (int z = Math.max(floor, zFrom - visDepth - 1); z < zTo; ) {
+            Material m = voxels.get(x, y, z);
+            int end = voxels.runEnd(x, y, z);
+            int stop = Math.min(end, zTo);
+            if (m.isSolid()) {
+                boolean solidAboveRun = end < depth && solid.isSolid(x, y, end);
+                int black = ColorPalette.code(m.getId(), 0);
+                for (z = Math.max(z, zFrom); z < stop; z++)
+                    target.set(x, y, z, black);
+                if (! solidAboveRun) {
+                    base = end - 1;
+                    baseMaterial = m;
                 }
             }
+            else {
+                for (z = Math.max(z, zFrom); z < stop; z++)
+                    target.set(x, y, z, base >= 0 && z - base < visDepth ? ColorPalette.code(baseMaterial.getId(), z - base) : ColorPalette.NONE);
+            }
+            z = end;
         }
     }
 
     /**
-     * Fills ground with soil from bottom to grass
+     * Records span of a column whose voxels changed. Listeners get every column only once in flushChanges, no matter how many times it changed.
+     * @param x x position of the column
+     * @param y y position of the column
+     * @param zFrom lowest changed z (inclusive)
+     * @param zTo highest changed z (exclusive)
      */
-    private void fillGround(){
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                for (int z = 1; z < depth; z++) {
-                    if (voxels[x][y][z] == null || ! voxels[x][y][z].isSolid())
-                        voxels[x][y][z] = Material.SOIL;
-                    else
-                        break;
-                }
+    private void recordChange(int x, int y, int zFrom, int zTo) {
+        if (! recording)
+            return;
+        int column = x * height + y;
+        if (dirtyFrom[column] == NOT_DIRTY) {
+            synchronized (dirtyLock) {
+                if (dirtyCount == dirtyColumns.length)
+                    dirtyColumns = Arrays.copyOf(dirtyColumns, dirtyCount * 2);
+                dirtyColumns[dirtyCount++] = column;
+            }
+            dirtyFrom[column] = zFrom;
+            dirtyTo[column] = zTo;
+        }
+        else {
+            dirtyFrom[column] = Math.min(dirtyFrom[column], zFrom);
+            dirtyTo[column] = Math.max(dirtyTo[column], zTo);
+        }
+    }
+
+    /**
+     * Reports all columns changed since the last flush to the listeners. Called after every tick of the ants
+     * and after every update of the simulation, so that colours rebuilt in the background are swapped in even when paused.
+     */
+    public synchronized void flushChanges() {
+        for (int i = 0; i < dirtyCount; i++) {
+            int column = dirtyColumns[i];
+            for (TerrainListener listener : listeners)
+                listener.columnChanged(column / height, column % height, dirtyFrom[column], dirtyTo[column]);
+            dirtyFrom[column] = NOT_DIRTY;
+        }
+        dirtyCount = 0;
+        for (TerrainListener listener : listeners)
+            listener.changesFlushed();
+    }
+
+    /**
+     * Keeps the colour map up to date with the changes of the voxels. A change can alter colours up to visual depth above it. Tile colours are just invalidated. If a background rebuild has finished,
+     * columns changed during it are recomputed in the new colour map and the new colour map replaces the displayed one.
+     */
+    private class ColorUpdater implements TerrainListener {
+
+        @Override
+        public void columnChanged(int x, int y, int zFrom, int zTo) {
+            if (! colorMap.isPrecomputed()) {
+                colorMap.invalidate(x, y);
+                return;
+            }
+            if (rebuild != null)
+                rebuildEdits.set(x * height + y);
+            recolorColumn(colorMap, x, y, zFrom, Math.min(depth, zTo + colorVisDepth), colorVisDepth);
+        }
+
+        @Override
+        public void changesFlushed() {
+            if (rebuild == null || ! rebuild.finished)
+                return;
+            for (int column = rebuildEdits.nextSetBit(0); column >= 0; column = rebuildEdits.nextSetBit(column + 1)) {
+                recolorColumn(rebuild.target, column / height, column % height, 0, depth, rebuild.visDepth);
+            }
+            rebuildEdits.clear();
+            colorMap = rebuild.target;
+            colorVisDepth = rebuild.visDepth;
+            rebuild = null;
+            if (world != null) {
+                final int generation = rebuildGeneration, validVisDepth = colorVisDepth;
+                rebuilder.execute(() -> {
+                    synchronized (world) {
+                        if (generation == rebuildGeneration)
+                            world.setColorsValid(validVisDepth); // forcing the colours to disk takes a while
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Called after every tick of the ants. Lets the voxel storage compress parts of the map that are not dug anymore.
+     * Skipped while colours are rebuilt in the background, since the rebuild reads the voxels from another thread.
+     */
+    public synchronized void tick() {
+        if (rebuild == null)
+            voxels.tick();
+    }
+
+    /**
+     * Computes colour code of a single voxel without the colour map. Gives the same codes as updateColor.
+     * @param x x position
+     * @param y y position
+     * @param z z position
+     * @return colour code (see ColorPalette)
+     */
+    public int colorAt(int x, int y, int z) {
+        if (solid.isSolid(x, y, z))
+            return ColorPalette.code(voxels.getId(x, y, z), 0);
+        int base = solid.highestSolidBelow(x, y, z);
+        if (base >= 0 && z - base < visDepth)
+            return ColorPalette.code(voxels.getId(x, y, base), z - base);
+        return ColorPalette.NONE;
+    }
+
+    /**
+     * Applies x-ray to colour codes of a row of one layer, if x-ray is on. A solid pixel with solid above it is lit by the block below the air under it,
+     * so tunnels can be seen even when the camera is obscured by solid blocks. Only the first air gap below the pixel counts (the light stops at the second encounter with air).
+     * The gap and the block are found in the solid bitmap, 64 voxels at a time, so this is cheap enough to do for every rendered row and toggling x-ray needs no recomputing.
+     * @param z layer of the row
+     * @param y y position of the row
+     * @param x x position of the first code
+     * @param length number of codes
+     * @param codes colour codes of the row as read from the colour map, changed in place
+     */
+    public void xRayRow(int z, int y, int x, int length, int[] codes) {
+        if (! xRay || z + 1 >= depth)
+            return;
+        for (int i = 0; i < length; i++) {
+            int code = codes[i];
+            if (code == ColorPalette.NONE || (code & 0xff) != 0 || ! solid.isSolid(x + i, y, z + 1))
+                continue; // not a solid voxel under another solid voxel
+            int gap = solid.highestAirBelow(x + i, y, z);
+            if (gap < 0 || z - gap >= colorVisDepth)
+                continue;
+            int base = solid.highestSolidBelow(x + i, y, gap);
+            if (base >= 0 && z - base < colorVisDepth)
+                codes[i] = ColorPalette.code(voxels.getId(x + i, y, base), z - base);
+        }
+    }
+
+    /**
+     * Computes colour codes of a rectangle of one layer. Used by TileColorCache.
+     * @param x0 x of the top left corner
+     * @param y0 y of the top left corner
+     * @param z layer
+     * @param w width of the rectangle
+     * @param h height of the rectangle
+     * @param dest array receiving the codes row by row
+     */
+    private void colorTile(int x0, int y0, int z, int w, int h, short[] dest) {
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                dest[y * w + x] = (short) colorAt(x0 + x, y0 + y, z);
             }
         }
     }
 
+    /**
+     * Fills ground of a column with soil from bottom to grass
+     * @param x x position of the column
+     * @param y y position of the column
+     */
+    private void fillGround(int x, int y){
+        fillColumn(x, y, 1, voxels.firstSolidFrom(x, y, 1), Material.SOIL.getId(), VoxelStorage.ANY);
+    }
+
     /**
      * Generates grass hills and valleys by combining 3D normal curves with randomized parameters
-     * @param r global Random object
+     * @param r random stream of the feature
+     * @return center x, center y, height and width of each curve
      */
-    private void generateValleys(Random r){
+    private int[][] generateValleys(Random r){
         int points_num = 10;
         int points[][] = new int[points_num][4];
         for (int i = 0; i < points_num; i++) {
@@ -166,26 +642,33 @@ public class Terrain implements Runnable{
             points[i][3] = 50 + r.nextInt(100);
 
         }
-        float sum;
+        return points;
+    }
+
+    /**
+     * Puts grass of a column on the height given by the sum of the normal curves
+     * @param points curves made by generateValleys
+     * @param x x position of the column
+     * @param y y position of the column
+     */
+    private void makeValley(int[][] points, int x, int y){
+        float sum = 0;
         double dist;
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                sum = 0;
-                for (int i = 0; i < points_num; i++) {
-                    dist = Math.sqrt( Math.pow(x - points[i][0], 2) + Math.pow(y - points[i][1], 2));
-                    sum += points[i][2] *  Math.exp((double) (-1 * (Math.pow(dist  / points[i][3], 2))));
-                }
-                voxels[x][y][(int)(sum + depth/2)] = Material.GRASS;
-            }
+        for (int i = 0; i < points.length; i++) {
+            dist = Math.sqrt( Math.pow(x - points[i][0], 2) + Math.pow(y - points[i][1], 2));
+            sum += points[i][2] *  Math.exp((double) (-1 * (Math.pow(dist  / points[i][3], 2))));
         }
+        writeVoxel(x, y, (int)(sum + depth/2), Material.GRASS.getId());
     }
 
     /**
      * Generates stones inside ground with random placement, radius and scales in all 3 dimensions.
-     * @param r global Random object
+     * @param r random stream of the feature
+     * @return spheres of the stones as x, y, z, radius, x scale, y scale and z scale
      */
-    private void generateStones(Random r){
+    private int[][] generateStones(Random r){
         int stonesNum = 65;
+        int[][] stones = new int[stonesNum][];
         int centX, centY, centZ, rad;
         int scaleY,scaleZ, scaleX;
         for (int i = 0; i < stonesNum; i++) {
@@ -197,18 +680,19 @@ public class Terrain implements Runnable{
             scaleY = r.nextInt(3) + 1;
             scaleX = r.nextInt(3) + 1;
             scaleZ = r.nextInt(10) + 5;
-            makeSphere(centX,centY,centZ,rad,scaleX,scaleY, scaleZ, Material.STONE, false);
+            stones[i] = new int[]{centX, centY, centZ, rad, scaleX, scaleY, scaleZ};
         }
+        return stones;
     }
 
     /**
-     * Generates one or two trees by making a cylinderic trunk, random crawling roots and branches
-     * @param r global Random object
+     * Generates one or two trees by making a cylinderic trunk, random crawling roots and branches. Each tree has its own random stream.
      */
-    private void generateTrees(Random r){
-        int treesNum = 1 + r.nextInt(2);
+    private void generateTrees(){
+        int treesNum = 1 + RandomStreams.get(seed, RandomStreams.TREES, 0).nextInt(2);
         int locX, locY, rad;
         for (int i = 0; i < treesNum; i++) {
+            Random r = RandomStreams.get(seed, RandomStreams.TREES, i + 1);
             locX = r.nextInt( width/treesNum ) + width/treesNum * i;
             locY = r.nextInt(height - 50) + 25;
             rad = r.nextInt(60) + 50;
@@ -235,7 +719,7 @@ public class Terrain implements Runnable{
 
     /**
      * Generates random branch at the position of the given coordinates with given (but slightly randomized) size and in given direction
-     * @param r global Random object
+     * @param r random stream of the tree
      * @param posX x position
      * @param posY y position
      * @param h z positon (or height)
@@ -254,7 +738,7 @@ public class Terrain implements Runnable{
             checkerY = posY + Math.sin(dir) * rad;
             if(posX < width && posY < height && posX >= 0 && posY >=0 && h < depth && (checkerX) < width &&
                     (checkerY) < height && (checkerX) >= 0 && (checkerY) >= 0) {
-                if (voxels[(int) (checkerX)][(int) (checkerY)][h] == null || ! voxels[(int) (checkerX)][(int) (checkerY)][h].isSolid())
+                if (! solid.isSolid((int) (checkerX), (int) (checkerY), h))
                     makeSphere((int) posX, (int) posY, h, rad, 1, 1, 1, Material.WOOD, false);
             }
             shift = r.nextInt(2);
@@ -273,7 +757,7 @@ public class Terrain implements Runnable{
 
     /**
      * Generates a leaf at given coordinates, similar to generateBranch
-     * @param r global
+     * @param r random stream of the tree
      * @param posX x position
      * @param posY y position
      * @param posZ z position
@@ -294,7 +778,7 @@ public class Terrain implements Runnable{
 
     /**
      * Crates root that sprawls downwards starting at given coordinates with given radius and direction
-     * @param r global Random r
+     * @param r random stream of the tree
      * @param posX x position
      * @param posY y position
      * @param rad starting radius of the root
@@ -322,32 +806,52 @@ public class Terrain implements Runnable{
      * @param scaleY y scaling of the sphere (making it ellipsoid if not 1)
      * @param scaleZ z scaling of the sphere (making it ellipsoid if not 1)
      * @param material Material with witch the sphere should be filled
-     * @param digging if true, stones, eggs and ant are not replaced. Also redraws the region of visual pixels afterwards
+     * @param digging if true, stones and ants are not replaced
      */
     public void makeSphere(int x0, int y0, int z0, int rad, float scaleX, float scaleY, float scaleZ, Material material, boolean digging){
-        for (int x = Math.max(x0 - rad , 0); x < Math.min(width, x0 + rad); x++) {
-            for (int y = Math.max(0, y0 - rad); y < Math.min(height, y0 + rad); y++) {
-                for (int z = Math.max(z0 - rad, 0); z < Math.min(z0 + rad, depth); z++) {
-                    if (Math.pow(x0 - x, 2) * scaleX + Math.pow(y0 - y, 2) * scaleY + Math.pow(z0 - z, 2) * scaleZ < Math.pow(rad,2)) {
-                        if ( ! digging || (voxels[x][y][z] != Material.STONE && voxels[x][y][z] != Material.RED_ANT))
-                            voxels[x][y][z] = material;
-                    }
-                }
+        fillSphere(x0, y0, z0, rad, scaleX, scaleY, scaleZ, material.getId(), digging ? DIGGABLE_MASK : VoxelStorage.ANY, 0, 0, width, height);
+    }
 
+    /**
+     * Fills part of a sphere inside a rectangle of columns. The sphere is filled a column span at a time using its stencil.
+     * @param x0 center x position
+     * @param y0 center y position
+     * @param z0 center z position
+     * @param rad base radius of the sphere
+     * @param scaleX x scaling of the sphere
+     * @param scaleY y scaling of the sphere
+     * @param scaleZ z scaling of the sphere
+     * @param id id of the Material to fill the sphere with
+     * @param replaceMask mask of materials that may be replaced
+     * @param bx0 lowest x of the rectangle (inclusive)
+     * @param by0 lowest y of the rectangle (inclusive)
+     * @param bx1 highest x of the rectangle (exclusive)
+     * @param by1 highest y of the rectangle (exclusive)
+     */
+    private void fillSphere(int x0, int y0, int z0, int rad, float scaleX, float scaleY, float scaleZ, int id, int replaceMask, int bx0, int by0, int bx1, int by1){
+        if (rad <= 0 || Math.max(x0 - rad, bx0) >= Math.min(bx1, x0 + rad) || Math.max(by0, y0 - rad) >= Math.min(by1, y0 + rad))
+            return;
+        SphereStencil stencil = SphereStencil.get(rad, scaleX, scaleY, scaleZ);
+        for (int x = Math.max(x0 - rad , bx0); x < Math.min(bx1, x0 + rad); x++) {
+            for (int y = Math.max(by0, y0 - rad); y < Math.min(by1, y0 + rad); y++) {
+                int h = stencil.halfDepth(x - x0, y - y0);
+                int zFrom = Math.max(z0 - h, 0);
+                int zTo = Math.min(z0 + Math.min(h, rad - 1) + 1, depth);
+                if (h >= 0 && zFrom < zTo)
+                    fillColumn(x, y, zFrom, zTo, id, replaceMask);
             }
         }
-        if (digging) // fuj
-            for (int x = Math.max(x0 - rad , 0); x < Math.min(width, x0 + rad); x++) {
-                for (int y = Math.max(0, y0 - rad); y < Math.min(height, y0 + rad); y++) {
-                    for (int z = Math.min(z0 + rad, depth) - 1; z >= Math.max(z0 - rad, 0); z--) {
-                            setColorMapAt(x, y, z);
-                    }
-                }
-            }
     }
 
     /**
-     * Generates horizontal disc of material at given position with thickness of 1 pixel
+     * Fills part of a sphere given as x, y, z, radius, x scale, y scale and z scale inside a rectangle of columns
+     */
+    private void fillSphere(int[] sphere, int id, int replaceMask, int bx0, int by0, int bx1, int by1){
+        fillSphere(sphere[0], sphere[1], sphere[2], sphere[3], sphere[4], sphere[5], sphere[6], id, replaceMask, bx0, by0, bx1, by1);
+    }
+
+    /**
+     * Generates horizontal disc of material at given position with thickness of 1 pixel. Every column of the disc is filled as a span one voxel deep like the spheres are.
      * @param x0 x position of center
      * @param y0 y position of center
      * @param z0 z position of center
@@ -356,10 +860,19 @@ public class Terrain implements Runnable{
      */
     public void generateDisc(int x0, int y0, int z0, int rad, Material mat){
         if (z0 > 0 && z0 < depth) {
+            int id = mat.getId();
             for (int x = Math.max(x0 - rad, 0); x < Math.min(width, x0 + rad); x++) {
-                for (int y = Math.max(0, y0 - rad); y < Math.min(height, y0 + rad); y++) {
-                    if (Math.sqrt((x - x0) * (x - x0) + (y - y0) * (y - y0)) < rad)
-                        voxels[x][y][z0] = mat;
+                // the row of the disc spans over y with (x - x0)^2 + (y - y0)^2 < rad^2
+                int rest = rad * rad - (x - x0) * (x - x0) - 1;
+                if (rest < 0)
+                    continue;
+                int h = (int) Math.sqrt(rest);
+                while (h * h > rest)
+                    h--;
+                while ((h + 1) * (h + 1) <= rest)
+                    h++;
+                for (int y = Math.max(0, y0 - Math.min(h, rad)); y < Math.min(height, y0 + Math.min(h + 1, rad)); y++) {
+                    fillColumn(x, y, z0, z0 + 1, id, VoxelStorage.ANY);
                 }
             }
         }
@@ -373,7 +886,93 @@ public class Terrain implements Runnable{
      * @param m material with which to set the voxel
      */
     public void setVoxelAt(int x, int y, int z, Material m) {
-        voxels[x][y][z] = m;
+        writeVoxel(x, y, z, m.getId());
+    }
+
+    /**
+     * Writes material into voxels, keeps the solid bitmap up to date and records the change for the listeners. Every single voxel write goes through here.
+     * @param x x position
+     * @param y y position
+     * @param z z position
+     * @param id id of the Material
+     */
+    private void writeVoxel(int x, int y, int z, int id) {
+        voxels.setId(x, y, z, id);
+        solid.set(x, y, z, Material.byId(id).isSolid());
+        recordChange(x, y, z, z + 1);
+    }
+
+    /**
+     * Fills vertical span of a column, keeps the solid bitmap up to date and records the change for the listeners
+     * @param x x position of the column
+     * @param y y position of the column
+     * @param zFrom lowest z of the span (inclusive)
+     * @param zTo highest z of the span (exclusive)
+     * @param id id of the Material to fill the span with
+     * @param replaceMask mask of materials that may be replaced
+     */
+    private void fillColumn(int x, int y, int zFrom, int zTo, int id, int replaceMask) {
+        voxels.fillColumn(x, y, zFrom, zTo, id, replaceMask);
+        if (replaceMask == VoxelStorage.ANY)
+            solid.fill(x, y, zFrom, zTo, Material.byId(id).isSolid());
+        else
+            solid.update(voxels, x, y, zFrom, zTo);
+        recordChange(x, y, zFrom, zTo);
+    }
+
+    /**
+     * Returns true if the voxel is solid. Faster than getVoxelAt(x, y, z).isSolid() since it reads only the solid bitmap.
+     * @param x x coordinates
+     * @param y y coordinates
+     * @param z z coordinates
+     * @return true if there is solid material at the coordinates
+     */
+    public boolean isSolidAt(int x, int y, int z) {
+        return solid.isSolid(x, y, z);
+    }
+
+    /**
+     * Finds the lowest air voxel that lies on top of something solid, looking from z down. Uses the surface of the column if it is bellow z.
+     * @param x x coordinates
+     * @param y y coordinates
+     * @param z highest z the air voxel can have
+     * @return z of the air voxel above the highest solid voxel bellow z (0 if there is no solid voxel under z)
+     */
+    public int getSurfaceBelow(int x, int y, int z) {
+        int top = solid.topSolid(x, y);
+        if (top < z)
+            return top + 1;
+        return solid.highestSolidBelow(x, y, z) + 1;
+    }
+
+    /**
+     * Counts non solid voxels inside a box, 64 voxels of a column at a time. Parts of the box outside of the map are not counted.
+     * @param x0 lowest x (inclusive)
+     * @param y0 lowest y (inclusive)
+     * @param z0 lowest z (inclusive)
+     * @param x1 highest x (inclusive)
+     * @param y1 highest y (inclusive)
+     * @param z1 highest z (inclusive)
+     * @return number of non solid voxels
+     */
+    public int countAir(int x0, int y0, int z0, int x1, int y1, int z1) {
+        return solid.countAir(x0, y0, z0, x1, y1, z1);
+    }
+
+    /**
+     * Finds a voxel of given materials in a box, the highest one if there are more (then the one with the lowest x and y).
+     * Parts of the box outside of the map are skipped.
+     * @param x0 lowest x (inclusive)
+     * @param y0 lowest y (inclusive)
+     * @param z0 lowest z (inclusive)
+     * @param x1 highest x (inclusive)
+     * @param y1 highest y (inclusive)
+     * @param z1 highest z (inclusive)
+     * @param mask mask of searched materials (see Material.getMask())
+     * @return int[3] coordinates of the found voxel or null if there is none
+     */
+    public int[] findInBox(int x0, int y0, int z0, int x1, int y1, int z1, int mask) {
+        return voxels.findInBox(x0, y0, z0, x1, y1, z1, mask);
     }
 
     /**
@@ -384,42 +983,34 @@ public class Terrain implements Runnable{
      * @return Material enum that lies at the coordinates
      */
     public Material getVoxelAt(int x, int y, int z) {
-        return voxels[x][y][z];
+        return voxels.get(x, y, z);
     }
 
     /**
-     * Creates a single blob of food on the floor level at given coordinates. For perfect sphere, all scales must be 1.
+     * Places a single blob of food on the floor level at given coordinates. For perfect sphere, all scales must be 1.
      * @param x0 x position
      * @param y0 y position
      * @param rad radius of the blob
      * @param scaleX x scale
      * @param scaleY y scale
      * @param scaleZ z scale
+     * @return sphere of the blob as x, y, z, radius, x scale, y scale and z scale. Food fills only air, so blobs can be filled in any order.
      */
-    private void dropFood(int x0, int y0, int rad, float scaleX, float scaleY, float scaleZ){
-        int z0 = depth/2 + 50;
-        while (voxels[x0][y0][z0] !=  Material.GRASS && voxels[x0][y0][z0] !=  Material.STONE){
-            z0--;
-        }
-        for (int x = Math.max(x0 - rad , 0); x < Math.min(width, x0 + rad); x++) {
-            for (int y = Math.max(0, y0 - rad); y < Math.min(height, y0 + rad); y++) {
-                for (int z = Math.max(z0 - rad, 0); z < Math.min(z0 + rad, depth); z++) {
-                    if (Math.pow(x0 - x, 2) * scaleX + Math.pow(y0 - y, 2) * scaleY + Math.pow(z0 - z, 2) * scaleZ < Math.pow(rad,2)) {
-                        if ( voxels[x][y][z] == null || !voxels[x][y][z].isSolid())
-                            voxels[x][y][z] = Material.FOOD;
-                    }
-                }
-
-            }
+    private int[] dropFood(int x0, int y0, int rad, int scaleX, int scaleY, int scaleZ){
+        int grass = Material.GRASS.getId(), stone = Material.STONE.getId();
+        int z0 = Math.min(solid.topSolid(x0, y0), depth/2 + 50);
+        while (voxels.getId(x0, y0, z0) != grass && voxels.getId(x0, y0, z0) != stone){
+            z0 = solid.highestSolidBelow(x0, y0, z0); // skips the air under trees and food a word at a time
         }
-
+        return new int[]{x0, y0, z0, rad, scaleX, scaleY, scaleZ};
     }
 
     /**
-     * Generates depositories of food over the map. On each position multiple blobs are created and dropped using dropFood randomly near that position
-     * @param r global Random object
+     * Generates depositories of food over the map. On each position multiple blobs are placed using dropFood randomly near that position
+     * @param r random stream of the feature
+     * @param blobs list to add the spheres of the blobs to
      */
-    public void generateFood(Random r){
+    private void generateFood(Random r, List<int[]> blobs){
         int centX = r.nextInt(width - 40) + 20;
         int centY = r.nextInt(height - 40) + 20;
         int rad = r.nextInt(20) + 10;
@@ -435,40 +1026,24 @@ public class Terrain implements Runnable{
             cScaleY = r.nextInt(3) + 1;
             cScaleX = r.nextInt(3) + 1;
             if (checkBoundaries(cX,cY,0))
-                dropFood(cX,cY,cRad,cScaleX,cScaleY,1);
+                blobs.add(dropFood(cX,cY,cRad,cScaleX,cScaleY,1));
         }
     }
 
     /**
-     * Sets color map at coordinates and sets visual pixels gradient above the pixel
-     * @param x x position
-     * @param y y position
-     * @param z z position
+     * Returns current color map. Color map is used for rendering. For instance if you want to render map at level 50, you take colorMap.get(all, all, 50) and you have all the pixels to render.
+     * Without it you would have to go "visual depth" times down for every transparent pixel. The map holds colour codes, getPalette turns them into colours.
+     * @return returns colorMap indexed by horizontal x, horizontal y and vertical z/camera depth
      */
-    public void setColorMapAt(int x, int y, int z) {
-        if (x < width && x >= 0 && y<height && y>= 0 && z <depth && z>=0 && voxels[x][y][z].isSolid()) {
-            colorMap[x][y][z] = getVoxelAt(x, y, z) == Material.RED_ANT ? 0xffff0000 : 0xff000000;
-            visColumn(x, y, z);
-        }
+    public ColorMap getColorMap() {
+        return colorMap;
     }
 
     /**
-     * Sets visual pixel black at given coordinates
-     * @param x x position
-     * @param y y position
-     * @param z z position
+     * @return palette turning colour codes of the colour map into colours
      */
-    public void setBlackAt(int x, int y, int z){
-        colorMap[x][y][z] = 0xff000000;
-    }
-
-    /**
-     * Returns current color map. Color map is used for rendering. For instance if you want to render map at level 50, you take colorMap[all][all][50] and you have all the pixels to render.
-     * Without it you would have to go "visual depth" times down for every transparent pixel.
-     * @return returns colorMap. in format colorMap[horizontal x][horizontal y][vertical z/camera depth]
-     */
-    public int[][][] getColorMap() {
-        return colorMap;
+    public ColorPalette getPalette() {
+        return palette;
     }
 
     /**
@@ -486,6 +1061,22 @@ public class Terrain implements Runnable{
         return height;
     }
 
+    /**
+     * Returns approximate heap size of the voxel storage and the solid bitmap
+     * @return size of the voxels in bytes
+     */
+    public long getVoxelMemory() {
+        return voxels.getMemoryUsage() + solid.getMemoryUsage();
+    }
+
+    /**
+     * Returns how long the last full colour rebuild took
+     * @return duration of the last updateColor in milliseconds
+     */
+    public long getColorRebuildTime() {
+        return colorRebuildMillis;
+    }
+
     /**
      * depth is vertical
      * @return depth of the map
@@ -503,23 +1094,12 @@ public class Terrain implements Runnable{
     }
 
     /**
-     * Sets visual depth.
+     * Sets visual depth. The colours for it are built in the background, the old colours are displayed until they are finished.
      * @param visDepth can be at least 30 (some ant rendering glitches may occur when bellow 30), max value is 50 since visible pixels further than 50 are too dim anyway
      */
     public void setVisDepth(int visDepth) {
         this.visDepth = visDepth;
-        colorMap = new int[width][height][depth];
-        Thread t = new Thread(this);
-        t.start();
-    }
-
-    /**
-     * Used by another thread when user changes visual depth during simulation to not halt the simulation itself.
-     */
-    @Override
-    public void run() {
-        updateColor(false);
-        sm.setSimRunning();
+        rebuildColors();
     }
 
     /**
@@ -536,13 +1116,10 @@ public class Terrain implements Runnable{
     }
 
     /**
-     * Toggles x-ray and redraws the colorMap array
+     * Toggles x-ray. The colour map stays the same, x-ray is applied when rendering, so the change is instant.
      */
     public void setxRay() {
         this.xRay = ! xRay;
-        colorMap = new int[width][height][depth];
-        Thread t = new Thread(this);
-        t.start();
     }
 
     /**
@@ -0,0 +1,24 @@
+package cz.kakosa.anthill;
+
+/**
+ * Receives changes of the voxels of a Terrain (see Terrain.addListener). Changes are batched, every changed column is reported once per flush
+ * with a span covering all its changes since the previous flush, no matter if they were single voxel writes or parts of a sphere.
+ * Generation and loading of the map are not reported, listeners should read the complete map when they are added.
+ */
+public interface TerrainListener {
+
+    /**
+     * Called in Terrain.flushChanges for every column changed since the previous flush
+     * @param x x position of the column
+     * @param y y position of the column
+     * @param zFrom lowest changed z (inclusive)
+     * @param zTo highest changed z (exclusive)
+     */
+    void columnChanged(int x, int y, int zFrom, int zTo);
+
+    /**
+     * Called in Terrain.flushChanges after all the changed columns were reported, even if there were none
+     */
+    default void changesFlushed() {
+    }
+}
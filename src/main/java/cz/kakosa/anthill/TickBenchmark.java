@@ -0,0 +1,61 @@
+package cz.kakosa.anthill;
+
+import cz.kakosa.anthill.ants.AntManager;
+import cz.kakosa.anthill.ants.AntStore;
+
+import java.util.Random;
+
+/**
+ * Measures updates of a big colony ticked one by one and in parallel tiles (see Settings.antThreads) with 1, 2, 4, ... threads up to the number of processors.
+ * The same map (given by seed= and size= arguments, see Settings) is generated for every run, the queen is let to settle down
+ * and explorers are put on the surface at the same random places. Checksums of the maps after the run have to be the same
+ * for all numbers of threads, the run without threads differs since its ants draw from a single Random.
+ */
+public class TickBenchmark {
+
+    private static final int EXPLORERS = 50000, WARMUP = 20, TICKS = 200;
+
+    /**
+     * Runs the benchmark
+     * @param args Settings in format key=value, antThreads is ignored since all numbers of threads are measured
+     */
+    public static void main(String[] args) {
+        Settings settings = Settings.parse(args);
+        int width = settings.worldWidth > 0 ? settings.worldWidth : SimManager.WIDTH;
+        int height = settings.worldHeight > 0 ? settings.worldHeight : SimManager.HEIGHT;
+        SimManager sm = new SimManager(SimManager.WIDTH, SimManager.HEIGHT, SimManager.INFOBAR_WIDTH, settings);
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads = 0; threads <= processors; threads = Math.max(1, threads * 2)) {
+            try (Terrain t = new Terrain(sm, width, height, settings);
+                 AntManager antManager = new AntManager(t, RandomStreams.get(settings.seed, RandomStreams.ANTS, 0), threads)) {
+                while (antManager.getNumofAnts() == 1)
+                    antManager.manageAnts(); // explorers need the queens chamber
+                Random r = new Random(settings.seed);
+                for (int i = 0; i < EXPLORERS; i++) {
+                    int x = r.nextInt(width), y = r.nextInt(height);
+                    int z = t.getSurfaceBelow(x, y, t.getDepth());
+                    if (t.checkBoundaries(x, y, z) && antManager.getAntAt(x, y, z) == AntStore.NO_ANT)
+                        antManager.addAnt(AntStore.EXPLORER, x, y, z);
+                }
+                for (int i = 0; i < WARMUP; i++)
+                    antManager.manageAnts();
+                long start = System.nanoTime();
+                for (int i = 0; i < TICKS; i++)
+                    antManager.manageAnts();
+                long time = System.nanoTime() - start;
+                System.out.printf("threads %2d: %6d us per update, ants %d, checksum %d%n", threads, time / TICKS / 1000, antManager.getNumofAnts(), checksum(t));
+            }
+        }
+    }
+
+    private static long checksum(Terrain t) {
+        long checksum = 0;
+        for (int x = 0; x < t.getWidth(); x++) {
+            for (int y = 0; y < t.getHeight(); y++) {
+                for (int z = 0; z < t.getDepth(); z++)
+                    checksum = checksum * 31 + t.getVoxelAt(x, y, z).getId();
+            }
+        }
+        return checksum;
+    }
+}
@@ -7,131 +7,155 @@ import java.util.Random;
 
 /**
  * Ant is displayed as a single moving pixel on the map.
+ * Subclasses hold the behaviour of one kind of ants, there is one object for each kind in AntManager (and one more for every thread of TiledTicker).
+ * State of the ants is kept in AntStore and every method gets id of the ant it works with.
  */
 public abstract class Ant {
 
-    Random r;
-    int[] lastPos;
-    public int foodEaten;
+    static final int EGG_SPACE_NEEDED = 150;
+    static final int COMMUNICATION_RAD = 5;
 
-    int internalClock = 0;
+    static final int[][] DIRECTION_2D = {{1,0}, {1,-1},{0,-1},{-1,-1}, {-1, 0}, {-1,1}, {0,1}, {1,1}};
 
-    AntManager antManager;
-    Terrain t;
-    Ant[][][] antMap;
+    final Random r;
+    final AntManager antManager;
+    final AntStore s;
+    final Terrain t;
 
-    int posX, posY, posZ;
+    final int visibleRadius;
 
-    int[] queenLoc;
-    final int EGG_SPACE_NEEDED = 150;
+    /**
+     * Behaviours of all kinds sharing Random and reach with this one, indexed by kind. Ants created by an ant of this kind are initialized by them.
+     */
+    Ant[] behaviours;
 
-    int visibleRadius = 10;
-    int communicationRad = 5;
+    /**
+     * Columns the ants may move to, from x0, y0 (inclusive) to x1, y1 (exclusive). The whole map unless the ants are ticked in parallel tiles,
+     * then it is the tile being ticked with a small margin (see TiledTicker).
+     */
+    private int reachX0 = Integer.MIN_VALUE, reachY0 = Integer.MIN_VALUE, reachX1 = Integer.MAX_VALUE, reachY1 = Integer.MAX_VALUE;
 
-    int dirDeltas[];
+    /**
+     * Sets all parameters shared by the ants of one kind
+     * @param am AntManager the ants live in
+     * @param r global Random object
+     * @param t Terrain the ants live in
+     * @param visibleRadius radius of the area around the ant in which it can "see"
+     */
+    Ant (AntManager am, Random r, Terrain t, int visibleRadius){
+        antManager = am;
+        s = am.getStore();
+        this.r = r;
+        this.t = t;
+        this.visibleRadius = visibleRadius;
+    }
 
-    int[][] direction2D = {{1,0}, {1,-1},{0,-1},{-1,-1}, {-1, 0}, {-1,1}, {0,1}, {1,1}};
+    /**
+     * Called when a new ant of this kind is created, its row in AntStore is already reset to its position. Adds the ant to the map.
+     * @param a id of the new ant
+     */
+    void init(int a){
+        t.setVoxelAt(s.x[a], s.y[a], s.z[a], Material.RED_ANT);
+    }
 
-    Material carrying;
+    /**
+     * Limits columns the ants may move to
+     * @param x0 lowest x (inclusive)
+     * @param y0 lowest y (inclusive)
+     * @param x1 highest x (exclusive)
+     * @param y1 highest y (exclusive)
+     */
+    void setReach(int x0, int y0, int x1, int y1){
+        reachX0 = x0;
+        reachY0 = y0;
+        reachX1 = x1;
+        reachY1 = y1;
+    }
 
     /**
-     * Sets all parameters and adds itself to the map by accessing arrays at Terrain
-     * @param am AntManager to add itself in
-     * @param r global Random object
-     * @param t Terrain to set up its location
+     * Tells whether the ants may move to given column
      * @param x x position
      * @param y y position
-     * @param z y position
-     * @param queenLoc queenLoc is important  for orientation inside the nest
+     * @return true if the column is within reach
      */
-    public Ant (AntManager am, Random r, Terrain t, int x, int y, int z, int[] queenLoc){
-        lastPos = new int[] {x, y, z-1};
-        antManager = am;
-        antMap = am.getAntMap();
-        posX = x;
-        posY = y;
-        posZ = z;
-        this.r = r;
-        this.t = t;
-        this.queenLoc = queenLoc;
-        t.setVoxelAt(posX, posY, posZ, Material.RED_ANT);
-        t.setColorMapAt(posX, posY, posZ);
+    boolean inReach(int x, int y){
+        return x >= reachX0 && y >= reachY0 && x < reachX1 && y < reachY1;
     }
 
     /**
      * Abstract method that holds the behaviour algorithms of the ant
+     * @param a id of the ant
      */
-    public abstract void behaveLikeAnAnt();
+    public abstract void behaveLikeAnAnt(int a);
 
     /**
-     * Changes position of an ant to new coordinates. Should be called after deciding where the ant should go. Handles Material map, Antmap as well as color map.
+     * Changes position of an ant to new coordinates. Should be called after deciding where the ant should go. Handles Material map, ant positions and the neighbour grid in AntManager, colours follow the voxel changes.
+     * @param a id of the ant
      * @param x Nes X position
      * @param y New Y position
      * @param z New Z position
      */
-    void moveTo(int x, int y, int z){
-        int oldX = posX, oldY = posY, oldZ = posZ;
+    void moveTo(int a, int x, int y, int z){
+        int oldX = s.x[a], oldY = s.y[a], oldZ = s.z[a];
 
-        lastPos = new int[] {oldX, oldY, oldZ};
+        s.lastPos[a] = AntStore.pack(oldX, oldY, oldZ);
 
-        posX = x;
-        posY = y;
-        posZ = z;
+        s.x[a] = x;
+        s.y[a] = y;
+        s.z[a] = z;
 
-        antMap[oldX][oldY][oldZ] = null;
-        antMap[posX][posY][posZ] = this;
+        antManager.clearAntAt(oldX, oldY, oldZ);
+        antManager.setAntAt(x, y, z, a);
+        antManager.getGrid().move(a, x, y, z);
 
         t.setVoxelAt(oldX, oldY, oldZ, Material.AIR);
         t.setVoxelAt(x,y,z,Material.RED_ANT);
+    }
 
-        t.setColorMapAt(posX, posY, posZ);
-
-        if ( ! t.getVoxelAt(oldX,oldY,oldZ-1).isSolid()){
-            for (int i = 0; i <= t.getVisDepth(); i++) { //cleaning up the column above
-                if (t.checkBoundaries(oldX, oldY, oldZ + i)) {
-                    if (t.getVoxelAt(oldX, oldY, oldZ + i) == null || t.getVoxelAt(oldX, oldY, oldZ + i) != Material.AIR)
-                        break;
-                    t.setBlackAt(oldX, oldY, oldZ + i);
-                }
-            }
-            int i;
-            for (i = 0; ! t.getVoxelAt(oldX,oldY,oldZ - i).isSolid() && i < t.getVisDepth(); i++){ }
-            t.setColorMapAt(oldX, oldY, oldZ - i);
-        }
-        else{
-            //t.setBlackAt(oldX, oldY, oldZ + t.getVisDepth());
-            t.setColorMapAt(oldX, oldY, oldZ - 1);
-        }
+    /**
+     * Moves the ant to a position that may be far away. If it is out of reach, the move is left to AntManager which makes it after all the ants behaved.
+     * @param a id of the ant
+     * @param x New X position
+     * @param y New Y position
+     * @param z New Z position
+     */
+    void teleport(int a, int x, int y, int z){
+        if (inReach(x, y))
+            moveTo(a, x, y, z);
+        else
+            antManager.teleportLater(a, x, y, z);
     }
 
     /**
      * Returns true if said position is next to a block in any direction - making it possible for the ant to climb there
+     * @param a id of the ant
      * @param x x position of tested place
      * @param y y position of tested place
      * @param z z position of tested place
      * @return Returns true if position has a block somewhere next to it (excluding diagonal directions), false if the position is surrounded by nonsolid Materials
      */
-    Material getSupport(int x, int y, int z){
+    Material getSupport(int a, int x, int y, int z){
         boolean crowded = false;
+        int[] queenLoc = antManager.getQueenLoc();
         if (queenLoc != null) {
-            crowded = distTo(queenLoc[0], queenLoc[1], queenLoc[2]) < 5;
+            crowded = distTo(a, queenLoc[0], queenLoc[1], queenLoc[2]) < 5;
         }
-        if (t.checkBoundaries(x, y, z - 1) && t.getVoxelAt(x, y, z - 1).isSolid() && (t.getVoxelAt(x, y, z - 1) != Material.RED_ANT || crowded))
+        if (t.checkBoundaries(x, y, z - 1) && t.isSolidAt(x, y, z - 1) && (crowded || t.getVoxelAt(x, y, z - 1) != Material.RED_ANT))
             return t.getVoxelAt(x, y, z - 1);
 
-        if (t.checkBoundaries(x + 1, y, z) && t.getVoxelAt(x + 1, y, z).isSolid() && (t.getVoxelAt(x + 1, y, z) != Material.RED_ANT || crowded))
+        if (t.checkBoundaries(x + 1, y, z) && t.isSolidAt(x + 1, y, z) && (crowded || t.getVoxelAt(x + 1, y, z) != Material.RED_ANT))
             return t.getVoxelAt(x + 1, y, z);
 
-        if (t.checkBoundaries(x, y + 1, z) && t.getVoxelAt(x, y + 1, z).isSolid() && (t.getVoxelAt(x, y + 1, z) != Material.RED_ANT || crowded))
+        if (t.checkBoundaries(x, y + 1, z) && t.isSolidAt(x, y + 1, z) && (crowded || t.getVoxelAt(x, y + 1, z) != Material.RED_ANT))
             return t.getVoxelAt(x, y + 1, z);
 
-        if (t.checkBoundaries(x - 1, y, z) && t.getVoxelAt(x - 1, y, z).isSolid() && (t.getVoxelAt(x - 1, y, z) != Material.RED_ANT || crowded))
+        if (t.checkBoundaries(x - 1, y, z) && t.isSolidAt(x - 1, y, z) && (crowded || t.getVoxelAt(x - 1, y, z) != Material.RED_ANT))
             return t.getVoxelAt(x - 1, y, z);
 
-        if (t.checkBoundaries(x, y - 1, z) && t.getVoxelAt(x, y - 1, z).isSolid() && (t.getVoxelAt(x, y - 1, z) != Material.RED_ANT || crowded))
+        if (t.checkBoundaries(x, y - 1, z) && t.isSolidAt(x, y - 1, z) && (crowded || t.getVoxelAt(x, y - 1, z) != Material.RED_ANT))
             return t.getVoxelAt(x, y - 1, z);
 
-        if (t.checkBoundaries(x, y, z + 1) && t.getVoxelAt(x, y, z + 1).isSolid() && (t.getVoxelAt(x, y, z + 1) != Material.RED_ANT || crowded))
+        if (t.checkBoundaries(x, y, z + 1) && t.isSolidAt(x, y, z + 1) && (crowded || t.getVoxelAt(x, y, z + 1) != Material.RED_ANT))
             return t.getVoxelAt(x, y, z + 1);
 
         return null;
@@ -140,14 +164,15 @@ public abstract class Ant {
 
     /**
      * Picks a random direction and tries to get one pixel in that direction
+     * @param a id of the ant
      */
-    void stepRandomly(){
+    void stepRandomly(int a){
         int dx = r.nextInt(2) - 1;
         int dy = r.nextInt(2) - 1;
         int dz = r.nextInt(2) - 1;
 
-        while (t.checkBoundaries(posX + dx, posY + dy, posZ + dz) && ! t.getVoxelAt(posX + dx, posY + dy, posZ + dz).isSolid() && getSupport(posX + dx, posY + dy, posZ + dz) != null) {
-            moveTo(posX + dx, posY + dy, posZ + dz);
+        while (inReach(s.x[a] + dx, s.y[a] + dy) && t.checkBoundaries(s.x[a] + dx, s.y[a] + dy, s.z[a] + dz) && ! t.isSolidAt(s.x[a] + dx, s.y[a] + dy, s.z[a] + dz) && getSupport(a, s.x[a] + dx, s.y[a] + dy, s.z[a] + dz) != null) {
+            moveTo(a, s.x[a] + dx, s.y[a] + dy, s.z[a] + dz);
             dx = r.nextInt(2) - 1;
             dy = r.nextInt(2) - 1;
             dz = r.nextInt(2) - 1;
@@ -155,120 +180,111 @@ public abstract class Ant {
     }
 
     /**
-     * Tries to move the ant based on aimForPixel to nearest pixel with support.
+     * Tries to move the ant based on its direction to nearest pixel with support.
+     * @param a id of the ant
      */
-    void solveMovementFromDir(){
+    void solveMovementFromDir(int a){
 
         boolean moved = false;
 
-        if (getSupport(posX, posY, posZ) == null){
-            moveTo(posX, posY, posZ - 1);
+        if (getSupport(a, s.x[a], s.y[a], s.z[a]) == null){
+            moveTo(a, s.x[a], s.y[a], s.z[a] - 1);
             moved = true;
         }
 
+        int dx = s.dirX[a], dy = s.dirY[a], dz = s.dirZ[a];
+
         if (! moved){
-            moved = testAndMove(posX + dirDeltas[0], posY + dirDeltas[1], posZ + dirDeltas[2]);
+            moved = testAndMove(a, s.x[a] + dx, s.y[a] + dy, s.z[a] + dz);
         }
 
-        if (! moved && dirDeltas[0] == 0) {
-            moved = testAndMove(posX + 1, posY + dirDeltas[1], posZ + dirDeltas[2]);
+        if (! moved && dx == 0) {
+            moved = testAndMove(a, s.x[a] + 1, s.y[a] + dy, s.z[a] + dz);
             if ( ! moved)
-                moved = testAndMove(posX - 1, posY + dirDeltas[1], posZ + dirDeltas[2]);
+                moved = testAndMove(a, s.x[a] - 1, s.y[a] + dy, s.z[a] + dz);
         }
-        if (! moved && dirDeltas[1] == 0) {
-            moved = testAndMove(posX + dirDeltas[0], posY + 1, posZ + dirDeltas[2]);
+        if (! moved && dy == 0) {
+            moved = testAndMove(a, s.x[a] + dx, s.y[a] + 1, s.z[a] + dz);
             if (! moved)
-                moved = testAndMove( posX + dirDeltas[0], posY - 1, posZ + dirDeltas[2]);
+                moved = testAndMove(a, s.x[a] + dx, s.y[a] - 1, s.z[a] + dz);
         }
-        if (! moved && dirDeltas[2] == 0) {
-            moved = testAndMove(posX + dirDeltas[0], posY + dirDeltas[1], posZ + 1);
+        if (! moved && dz == 0) {
+            moved = testAndMove(a, s.x[a] + dx, s.y[a] + dy, s.z[a] + 1);
             if (! moved)
-                moved = testAndMove(posX + dirDeltas[0], posY + dirDeltas[1], posZ - 1);
+                moved = testAndMove(a, s.x[a] + dx, s.y[a] + dy, s.z[a] - 1);
         }
 
-        if (! moved && dirDeltas[2] != 0) {
-            moved = testAndMove(posX + dirDeltas[0], posY + dirDeltas[1], posZ);
+        if (! moved && dz != 0) {
+            moved = testAndMove(a, s.x[a] + dx, s.y[a] + dy, s.z[a]);
             if (!moved)
-                moved = testAndMove(posX + dirDeltas[0], posY + dirDeltas[1], posZ - dirDeltas[2]);
+                moved = testAndMove(a, s.x[a] + dx, s.y[a] + dy, s.z[a] - dz);
         }
-        if (! moved && dirDeltas[0] != 0) {
-            moved = testAndMove(posX, posY + dirDeltas[1], posZ + dirDeltas[2]);
+        if (! moved && dx != 0) {
+            moved = testAndMove(a, s.x[a], s.y[a] + dy, s.z[a] + dz);
             if (!moved)
-                moved = testAndMove(posX - dirDeltas[0], posY + dirDeltas[1], posZ + dirDeltas[2]);
+                moved = testAndMove(a, s.x[a] - dx, s.y[a] + dy, s.z[a] + dz);
         }
-        if (! moved && dirDeltas[1] != 0) {
-            moved = testAndMove(posX + dirDeltas[0], posY, posZ + dirDeltas[2]);
+        if (! moved && dy != 0) {
+            moved = testAndMove(a, s.x[a] + dx, s.y[a], s.z[a] + dz);
             if (!moved)
-                moved = testAndMove(posX + dirDeltas[0], posY - dirDeltas[1], posZ + dirDeltas[2]);
+                moved = testAndMove(a, s.x[a] + dx, s.y[a] - dy, s.z[a] + dz);
         }
 
         if (!moved){
-            stepRandomly();
+            stepRandomly(a);
         }
 
     }
 
     /**
-     * Used in solveMovementFromAim as a submethod that checks boundaries, checks if given position is valid and if so, moves the Ant.
+     * Used in solveMovementFromDir as a submethod that checks boundaries and reach, checks if given position is valid and if so, moves the Ant.
+     * @param a id of the ant
      * @param x X coordinate
      * @param y Y coordinate
      * @param z Z coordinate
      * @return true if movement was successful, false if not
      */
-    boolean testAndMove(int x, int y, int z){
-        if ( t.checkBoundaries(x,y,z) && ! t.getVoxelAt(x,y,z).isSolid() && getSupport(x,y,z) != null && ! (x == lastPos[0] && y == lastPos[1] && z == lastPos[2])) {
-            moveTo(x,y,z);
+    boolean testAndMove(int a, int x, int y, int z){
+        if ( inReach(x, y) && t.checkBoundaries(x,y,z) && ! t.isSolidAt(x,y,z) && getSupport(a, x,y,z) != null && AntStore.pack(x, y, z) != s.lastPos[a]) {
+            moveTo(a, x,y,z);
             return true;
         }
         return false;
     }
 
     /**
-     * gets three dimensional direction deltas (from -1 to 1) based on a point of interests location on map
+     * Sets three dimensional direction deltas (from -1 to 1) of the ant towards a point of interest on map
+     * @param a id of the ant
      * @param x point of interests x location
      * @param y point of interests x location
      * @param z point of interests x location
-     * @return returnd int[3] of x delta, y delta and z delta all ranging from -1 to 1. (1 vertically is up)
      */
-    int[] getDirFromMap(int x, int y, int z){
-        int[] toReturn = new int[3];
-        if (x < posX){
-            toReturn[0] = -1;
-        }
-        else if (x == posX){
-            toReturn[0] = 0;
-        }
-        else{
-            toReturn[0] = 1;
-        }
-        if (y < posY){
-            toReturn[1] = -1;
-        }
-        else if (y == posY){
-            toReturn[1] = 0;
-        }
-        else{
-            toReturn[1] = 1;
-        }
-        if (z < posZ){
-            toReturn[2] = -1;
-        }
-        else if (z == posZ){
-            toReturn[2] = 0;
-        }
-        else{
-            toReturn[2] = 1;
-        }
+    void setDirTo(int a, int x, int y, int z){
+        s.dirX[a] = (byte) Integer.signum(x - s.x[a]);
+        s.dirY[a] = (byte) Integer.signum(y - s.y[a]);
+        s.dirZ[a] = (byte) Integer.signum(z - s.z[a]);
+    }
 
-        return toReturn;
+    /**
+     * Sets direction of the ant
+     * @param a id of the ant
+     * @param dx x delta
+     * @param dy y delta
+     * @param dz z delta (1 is up)
+     */
+    void setDir(int a, int dx, int dy, int dz){
+        s.dirX[a] = (byte) dx;
+        s.dirY[a] = (byte) dy;
+        s.dirZ[a] = (byte) dz;
     }
 
     /**
      *Sets direction based on where the biggest amount of air is above or below the ant
+     * @param a id of the ant
      * @param upMode if this is true the ant searches for air pockets above it, and below it if false.
      *               This results in the ant traveling up and outside the ant Nest if true or inside and down the nest if false.
      */
-    void dirToAirBubble(boolean upMode){
+    void dirToAirBubble(int a, boolean upMode){
 
         int sectorLength = (visibleRadius * 2 + 1) / 3;
         int highest = 0;
@@ -279,85 +295,67 @@ public abstract class Ant {
         int zn = upMode ? visibleRadius : -1;
 
 
-        for (int i = 0; i < direction2D.length; i++) {
-            current = 0;
-            for (int z = z0; z <= zn ; z++)
-                for (int y = - visibleRadius + (direction2D[i][1] + 1) * (sectorLength); y <= - visibleRadius + (direction2D[i][1] + 1) * sectorLength + sectorLength; y++) {
-                    for (int x = - visibleRadius + (direction2D[i][0] + 1) * (sectorLength); x <= - visibleRadius + (direction2D[i][0] + 1) * sectorLength + sectorLength; x++) {
-                        if ( t.checkBoundaries(posX + x, posY + y, posZ + z) && ! t.getVoxelAt(posX + x, posY + y, posZ + z).isSolid()) {
-                            current++;
-                        }
-
-                    }
-                }
+        for (int i = 0; i < DIRECTION_2D.length; i++) {
+            int x0 = s.x[a] - visibleRadius + (DIRECTION_2D[i][0] + 1) * sectorLength;
+            int y0 = s.y[a] - visibleRadius + (DIRECTION_2D[i][1] + 1) * sectorLength;
+            current = t.countAir(x0, y0, s.z[a] + z0, x0 + sectorLength, y0 + sectorLength, s.z[a] + zn);
             if (current > highest) {
                 highest = current;
-                dirDeltas = new int[] {direction2D[i][0], direction2D[i][1], verticalDelta};
+                setDir(a, DIRECTION_2D[i][0], DIRECTION_2D[i][1], verticalDelta);
             }
         }
     }
 
     /**
      * Counts air pixels around the ant (excluding parts bellow him)
+     * @param a id of the ant
      * @param rad radius of the cube around the ant in which to check
      * @return number of air pixels that are around the ant
      */
-    int sizeOfChamber(int rad){
-        int toReturn = 0;
-
-        int start = - rad;
-        int end = rad;
-
-        for (int z = 0 ; z <= end; z++) {
-            for (int y = start; y <= end; y++) {
-                for (int x = start; x <= end; x++) {
-                    if ( t.checkBoundaries(posX + x, posY + y, posZ + z) && ! t.getVoxelAt(posX + x, posY + y, posZ + z).isSolid()){
-                        toReturn++;
-                    }
-                }
-            }
-        }
-        return toReturn;
+    int sizeOfChamber(int a, int rad){
+        return t.countAir(s.x[a] - rad, s.y[a] - rad, s.z[a], s.x[a] + rad, s.y[a] + rad, s.z[a] + rad);
     }
 
 
     /**
      * Looks for the food in a vicinity of the ant
+     * @param a id of the ant
      * @param rad radius of the cube in which to search for the food
      * @return null if there is no food around, int[3] coordinates of the food if there is any.
      */
-    int[] foodInVicinity(int rad){
-        for (int z = rad; z >= -rad; z--) {
-            for (int x = -rad; x <= rad; x++) {
-                for (int y = -rad; y <= rad; y++) {
-                    if ( t.checkBoundaries(posX + x, posY + y, posZ + z) &&
-                            (t.getVoxelAt(posX + x, posY + y, posZ + z) == Material.LEAVES || t.getVoxelAt(posX + x, posY + y, posZ + z) == Material.FOOD)){
-                        return new int[] {posX + x,posY + y,posZ + z};
-                    }
-                }
-            }
-        }
-        return null;
+    int[] foodInVicinity(int a, int rad){
+        return t.findInBox(s.x[a] - rad, s.y[a] - rad, s.z[a] - rad, s.x[a] + rad, s.y[a] + rad, s.z[a] + rad, Material.LEAVES.getMask() | Material.FOOD.getMask());
     }
 
     /**
-     * Sets random direction for the ant to follow
-     * @return int[3] of direction deltas from -1 to 1
+     * Sets random horizontal direction for the ant to follow
+     * @param a id of the ant
      */
-    int[] randomDir(){
+    void setRandomDir(int a){
         int randDir = r.nextInt(8);
-        return new int[] {direction2D[randDir][0], direction2D[randDir][1], 0};
+        setDir(a, DIRECTION_2D[randDir][0], DIRECTION_2D[randDir][1], 0);
     }
 
     /**
      * Returns Euclidean distance from the ant to given coordinates (rounded to int)
+     * @param a id of the ant
      * @param x x position of the measured spot
      * @param y y position of the measured spot
      * @param z z position of the measured spot
      * @return returns non negative int that coresponds to the distance between the Ant and the coordinates
      */
-    int distTo(int x, int y, int z){
-        return (int)Math.sqrt(Math.pow(posX - x,2) + Math.pow(posY - y,2) + Math.pow(posZ - z,2));
+    int distTo(int a, int x, int y, int z){
+        return (int)Math.sqrt(Math.pow(s.x[a] - x,2) + Math.pow(s.y[a] - y,2) + Math.pow(s.z[a] - z,2));
+    }
+
+    /**
+     * Returns Euclidean distance from the ant to given packed position (rounded to int)
+     * @param a id of the ant
+     * @param pos packed position of the measured spot
+     * @return returns non negative int that coresponds to the distance between the Ant and the position
+     */
+    int distTo(int a, long pos){
+        return distTo(a, AntStore.unpackX(pos), AntStore.unpackY(pos), AntStore.unpackZ(pos));
     }
 
     /**
@@ -402,9 +400,10 @@ public abstract class Ant {
 
     /**
      * Returns null if ant doesn't carry anything, or carried Material
-     * @return
+     * @param a id of the ant
+     * @return carried Material or null
      */
-    public Material getCarrying() {
-        return carrying;
+    public Material getCarrying(int a) {
+        return s.carrying[a] == AntStore.NO_MATERIAL ? null : Material.byId(s.carrying[a]);
     }
 }
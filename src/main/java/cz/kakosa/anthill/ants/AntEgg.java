@@ -11,62 +11,69 @@ import java.util.Random;
 public class AntEgg extends Ant{
 
     final public int foodToHatchThresh = 10;
-    int timeToHatch = 500;
-    int antClass;
-    final int EXPLORER = 1, MAINTENANCE = 2;
+    final int TIME_TO_HATCH = 500;
 
     /**
-     *  calls super constructor and sets class of the ant waiting to hatch inside
-     * @param am AntManager to add itself in
+     *  calls super constructor
+     * @param am AntManager the ants live in
      * @param r global Random object
-     * @param t Terrain to set up its location
-     * @param x x position
-     * @param y y position
-     * @param z y position
-     * @param queenLoc queenLoc is important  for orientation inside the nest
-     * @param antClass 1 if Explorer, 2 if Maintainer
+     * @param t Terrain the ants live in
      */
-    public AntEgg(AntManager am, Random r, Terrain t, int x, int y, int z, int antClass, int[] queenLoc){
-        super(am, r, t, x, y, z, queenLoc);
-        t.setVoxelAt(posX, posY, posZ, Material.EGG);
-        t.setColorMapAt(posX, posY, posZ);
-        this.antClass = antClass;
+    public AntEgg(AntManager am, Random r, Terrain t){
+        super(am, r, t, 10);
     }
 
     /**
-     * If the egg is not hungry and it's time has come (to zero), it hatches. Otherwise it decrements set time.
+     * Puts the egg into the map and sets its time to hatch. Class of the ant waiting to hatch inside is set by the one who lays the egg.
+     * @param a id of the new egg
      */
     @Override
-    public void behaveLikeAnAnt() {
-        timeToHatch--;
-        if (timeToHatch < 0){
-            timeToHatch = 0;
+    void init(int a) {
+        super.init(a);
+        t.setVoxelAt(s.x[a], s.y[a], s.z[a], Material.EGG);
+        s.timer[a] = TIME_TO_HATCH;
+    }
+
+    /**
+     * If the egg is not hungry, it's time has come (to zero) and it isn't carried by a maintainer, it hatches. Otherwise it decrements set time.
+     * A carried egg waits until it is put down, since the ant would hatch at the place the egg was picked up at.
+     * @param a id of the egg
+     */
+    @Override
+    public void behaveLikeAnAnt(int a) {
+        s.timer[a]--;
+        if (s.timer[a] < 0){
+            s.timer[a] = 0;
         }
-        if (timeToHatch == 0 && foodEaten >= foodToHatchThresh){
-            switch(antClass){
-                case MAINTENANCE:
-                    antManager.hatchEgg(this, new MaintainingAnt(antManager, r, t, posX, posY, posZ, queenLoc));
-                    break;
-                case EXPLORER:
-                    antManager.hatchEgg(this, new ExplorerAnt(antManager, r, t, posX, posY, posZ, queenLoc));
-                    break;
-            }
+        if (s.timer[a] == 0 && s.foodEaten[a] >= foodToHatchThresh && ! antManager.isCarried(a)){
+            antManager.hatchEgg(behaviours, a, s.carried[a]);
         }
     }
 
     /**
-     * Returns time required to hatch which is at least 0 and timeToHatch at the beggining
+     * Returns time required to hatch which is at least 0 and 500 at the beggining
+     * @param a id of the egg
      * @return 0 if the ant is ready to hatch time-wise
      */
-    public int getTimeToHatch() {
-        return timeToHatch;
+    public int getTimeToHatch(int a) {
+        return s.timer[a];
+    }
+
+    /**
+     * Returns amount of food the egg was fed
+     * @param a id of the egg
+     * @return number of times the egg was fed
+     */
+    public int getFoodEaten(int a) {
+        return s.foodEaten[a];
     }
 
     /**
      * Used to determine wheter to feed the ant or not.
+     * @param a id of the egg
      * @return Returns true if the ant requires feeding.
      */
-    public boolean isHungry(){
-        return foodToHatchThresh - foodEaten > 0;
+    public boolean isHungry(int a){
+        return foodToHatchThresh - s.foodEaten[a] > 0;
     }
 }
@@ -0,0 +1,153 @@
+package cz.kakosa.anthill.ants;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Neighbour index of the ants. The map is split into cells of 8x8x8 voxels and every cell keeps a list of the ants standing in it,
+ * linked through arrays indexed by ant id. Moving an ant costs O(1) and looking for ants around a position only visits the few cells the searched cube touches.
+ */
+public class AntGrid {
+
+    static final int CELL_BITS = 3;
+
+    /**
+     * Cell of an ant that is not in the grid
+     */
+    private static final int NO_CELL = -1;
+
+    private final AntStore store;
+    private final int cellsX, cellsY, cellsZ;
+
+    /**
+     * First ant of every cell or NO_ANT
+     */
+    private final int[] heads;
+
+    /**
+     * Neighbours of the ant in the list of its cell and the cell itself, NO_CELL for ids that are not in the grid (like carried eggs)
+     */
+    private int[] next, prev, cells;
+
+    /**
+     * Creates empty grid covering the map
+     * @param store AntStore with positions of the ants
+     * @param width width of the map
+     * @param height height of the map
+     * @param depth depth of the map
+     */
+    public AntGrid(AntStore store, int width, int height, int depth) {
+        this.store = store;
+        cellsX = (width >> CELL_BITS) + 1;
+        cellsY = (height >> CELL_BITS) + 1;
+        cellsZ = (depth >> CELL_BITS) + 1;
+        heads = new int[cellsX * cellsY * cellsZ];
+        Arrays.fill(heads, AntStore.NO_ANT);
+        next = new int[64];
+        prev = new int[64];
+        cells = new int[64];
+        Arrays.fill(cells, NO_CELL);
+    }
+
+    private int cellOf(int x, int y, int z) {
+        return ((x >> CELL_BITS) * cellsY + (y >> CELL_BITS)) * cellsZ + (z >> CELL_BITS);
+    }
+
+    /**
+     * Makes room for ids lower than given capacity, so that adding them doesn't reallocate the arrays
+     * @param capacity number of ids
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > cells.length) {
+            int oldLength = cells.length;
+            capacity = Math.max(capacity, oldLength * 2);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            cells = Arrays.copyOf(cells, capacity);
+            Arrays.fill(cells, oldLength, capacity, NO_CELL);
+        }
+    }
+
+    /**
+     * Adds ant to the cell of given position, an ant that is already in the grid is moved there
+     * @param id id of the ant
+     * @param x x position
+     * @param y y position
+     * @param z z position
+     */
+    public void add(int id, int x, int y, int z) {
+        ensureCapacity(id + 1);
+        if (cells[id] != NO_CELL)
+            unlink(id);
+        link(id, cellOf(x, y, z));
+    }
+
+    /**
+     * Removes ant from the grid, does nothing if it is not there
+     * @param id id of the ant
+     */
+    public void remove(int id) {
+        if (id >= 0 && id < cells.length && cells[id] != NO_CELL) {
+            unlink(id);
+            cells[id] = NO_CELL;
+        }
+    }
+
+    /**
+     * Moves ant to the cell of its new position, does nothing if the cell stays the same or the ant is not in the grid
+     * @param id id of the ant
+     * @param x new x position
+     * @param y new y position
+     * @param z new z position
+     */
+    public void move(int id, int x, int y, int z) {
+        int cell = cellOf(x, y, z);
+        if (cell != cells[id] && cells[id] != NO_CELL) {
+            unlink(id);
+            link(id, cell);
+        }
+    }
+
+    /**
+     * Calls action for every ant in the cube of given radius around the position, including an ant standing right at the position
+     * @param x x position of the center
+     * @param y y position of the center
+     * @param z z position of the center
+     * @param radius greatest distance along any axis
+     * @param action called with id of every found ant
+     */
+    public void forEachWithin(int x, int y, int z, int radius, IntConsumer action) {
+        int cx0 = Math.max(x - radius, 0) >> CELL_BITS, cx1 = Math.min((x + radius) >> CELL_BITS, cellsX - 1);
+        int cy0 = Math.max(y - radius, 0) >> CELL_BITS, cy1 = Math.min((y + radius) >> CELL_BITS, cellsY - 1);
+        int cz0 = Math.max(z - radius, 0) >> CELL_BITS, cz1 = Math.min((z + radius) >> CELL_BITS, cellsZ - 1);
+        for (int cx = cx0; cx <= cx1; cx++) {
+            for (int cy = cy0; cy <= cy1; cy++) {
+                for (int cz = cz0; cz <= cz1; cz++) {
+                    for (int a = heads[(cx * cellsY + cy) * cellsZ + cz]; a != AntStore.NO_ANT; a = next[a]) {
+                        if (Math.abs(store.x[a] - x) <= radius && Math.abs(store.y[a] - y) <= radius && Math.abs(store.z[a] - z) <= radius)
+                            action.accept(a);
+                    }
+                }
+            }
+        }
+    }
+
+    private void link(int id, int cell) {
+        int head = heads[cell];
+        next[id] = head;
+        prev[id] = AntStore.NO_ANT;
+        if (head != AntStore.NO_ANT)
+            prev[head] = id;
+        heads[cell] = id;
+        cells[id] = cell;
+    }
+
+    private void unlink(int id) {
+        if (prev[id] != AntStore.NO_ANT)
+            next[prev[id]] = next[id];
+        else
+            heads[cells[id]] = next[id];
+        if (next[id] != AntStore.NO_ANT)
+            prev[next[id]] = prev[id];
+    }
+}
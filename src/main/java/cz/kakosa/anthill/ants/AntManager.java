@@ -3,40 +3,126 @@ package cz.kakosa.anthill.ants;
 import cz.kakosa.anthill.Material;
 import cz.kakosa.anthill.Terrain;
 
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.Random;
 
 /**
- * Used to store all the Ant objects and call their behaviour methods each update
+ * Used to store all the Ant objects and call their behaviour methods each update.
+ * Ants are kept in an array without gaps, a removed ant is replaced by the last one. Every ant gets an id when it is added,
+ * the id stays the same while the ant lives and is given to a new ant only after the old one was removed.
+ * Ants behave one by one, or in parallel tiles of the map when created with threads (see TiledTicker).
  */
-public class AntManager {
+public class AntManager implements AutoCloseable {
+
+    /**
+     * Positions of the ants are kept in a separate map for every block of 16x16 columns, so that ants ticked in parallel tiles don't write to the same map
+     */
+    private static final int POSITION_BLOCK_BITS = 4;
 
     private Random r;
-    private LinkedList<Ant> ants;
-    private LinkedList<Ant> antsToAdd;
-    private LinkedList<Ant> antsToRemove;
+    private final int threads;
+    private AntStore store;
+    /**
+     * Behaviour of each kind of ants, indexed by kind
+     */
+    private Ant[] behaviours;
+
+    /**
+     * Ids of living ants in the order they behave
+     */
+    private int[] ants;
+    private int antCount;
+    /**
+     * Position of an ant in the ants array by its id, -1 for ids that are not used
+     */
+    private int[] slots;
+    private int[] freeIds;
+    private int freeIdCount;
+    private int nextId;
 
-    private Ant[][][] antMap;
+    private int[] idsToAdd;
+    private int addCount;
+    private int[] idsToRemove;
+    private int removeCount;
+
+    private AntPositionMap[] positions;
+    private int positionBlocksY;
+    private AntGrid grid;
+    private int[] queenLoc;
 
     /**
-     * Calls createAnts
+     * Ants moving out of reach of their tile, made after all the tiles behaved: ids and packed target positions
+     */
+    private int[] teleportIds = new int[16];
+    private long[] teleportTargets = new long[16];
+    private int teleportCount;
+
+    /**
+     * Sort keys of the changes made by parallel tiles, kept between updates so that sorting doesn't allocate
+     */
+    private long[] order = new long[16];
+    /**
+     * Number of low bits of the sort key of an added ant that hold its id, the bits above hold its voxel index and kind
+     */
+    private int idBits;
+
+    private TiledTicker ticker;
+
+    private Terrain terrain;
+
+    /**
+     * Calls createAnts, the ants behave one by one
      * @param terrain Terrain to put the ants in
      * @param r global Random object
      */
     public AntManager(Terrain terrain, Random r){
+        this(terrain, r, 0);
+    }
+
+    /**
+     * Calls createAnts
+     * @param terrain Terrain to put the ants in
+     * @param r global Random object
+     * @param threads number of threads ticking the ants in parallel tiles, 0 to let them behave one by one on the calling thread
+     */
+    public AntManager(Terrain terrain, Random r, int threads){
         this.r = r;
+        this.threads = threads;
         createAnts(terrain);
     }
 
     /**
-     * Creates lists and arrays of ants, adds Queen
+     * Creates the ant store and arrays of ants, adds Queen
      * @param t Terrain to put the ants in
      */
     public void createAnts(Terrain t){
-        antMap = new Ant[t.getWidth()][t.getHeight()][t.getDepth()];
-        ants = new LinkedList<>();
-        antsToAdd = new LinkedList<>();
-        antsToRemove = new LinkedList<>();
+        terrain = t;
+        positionBlocksY = (t.getHeight() >> POSITION_BLOCK_BITS) + 1;
+        positions = new AntPositionMap[((t.getWidth() >> POSITION_BLOCK_BITS) + 1) * positionBlocksY];
+        for (int i = 0; i < positions.length; i++){
+            positions[i] = new AntPositionMap(8);
+        }
+        queenLoc = null;
+        store = new AntStore(64);
+        grid = new AntGrid(store, t.getWidth(), t.getHeight(), t.getDepth());
+        long volume = (long) t.getWidth() * t.getHeight() * t.getDepth();
+        idBits = Math.min(31, 61 - (64 - Long.numberOfLeadingZeros(volume - 1)));
+        behaviours = createBehaviours(r);
+        if (ticker != null){
+            ticker.close();
+        }
+        ticker = threads > 0 ? new TiledTicker(this, r, t, threads) : null;
+        teleportCount = 0;
+        ants = new int[64];
+        antCount = 0;
+        slots = new int[64];
+        freeIds = new int[16];
+        freeIdCount = 0;
+        nextId = 0;
+        idsToAdd = new int[16];
+        addCount = 0;
+        idsToRemove = new int[16];
+        removeCount = 0;
         int x;
         int y;
         do {
@@ -44,53 +130,389 @@ public class AntManager {
             y = r.nextInt(t.getHeight() - 80) + 40;
         } while (t.getVoxelAt(x, y, 149) == Material.WOOD);
 
-        int z;
-        for (z = t.getDepth()*2 /3 ; t.getVoxelAt(x, y, z-1) == Material.AIR ; z--) { }
+        int z = t.getSurfaceBelow(x, y, t.getDepth()*2 /3);
 
 
-        Ant q = new QueenAnt(this, r, t, x, y, z);
-        ants.add(q);
-        antMap[q.posX][q.posY][q.posZ] = q;
+        addAnt(AntStore.QUEEN, x, y, z);
+        applyChanges();
     }
 
     /**
-     * Adds ants, removes ants, calls behaviour method for each ant
+     * Creates behaviour of each kind of ants, all of them draw from the same Random
+     * @param random Random the behaviours draw from
+     * @return behaviours indexed by kind
+     */
+    Ant[] createBehaviours(Random random){
+        Ant[] set = new Ant[4];
+        set[AntStore.QUEEN] = new QueenAnt(this, random, terrain);
+        set[AntStore.EXPLORER] = new ExplorerAnt(this, random, terrain);
+        set[AntStore.MAINTAINER] = new MaintainingAnt(this, random, terrain);
+        set[AntStore.EGG] = new AntEgg(this, random, terrain);
+        for (Ant behaviour : set){
+            behaviour.behaviours = set;
+        }
+        return set;
+    }
+
+    /**
+     * Adds ants, removes ants, calls behaviour method for each ant, lets the terrain compress idle voxels and then reports the changes of the terrain to its listeners (the colour map among them)
      */
     public void manageAnts(){
-        ants.addAll(antsToAdd);
-        ants.removeAll(antsToRemove);
-        antsToRemove.clear();
-        antsToAdd.clear();
-        for (Ant ant : ants){
-            ant.behaveLikeAnAnt();
+        applyChanges();
+        if (ticker != null){
+            ticker.tick(ants, antCount);
+        }
+        else{
+            byte[] kinds = store.kind;
+            for (int i = 0; i < antCount; i++){
+                int a = ants[i];
+                behaviours[kinds[a]].behaveLikeAnAnt(a);
+            }
         }
+        terrain.tick();
+        terrain.flushChanges();
+    }
+
+    /**
+     * Stops the threads ticking the ants in parallel tiles, if there are any. The ants can't be managed after that.
+     */
+    @Override
+    public void close(){
+        if (ticker != null){
+            ticker.close();
+            ticker = null;
+        }
+    }
+
+    /**
+     * Returns the store with state of all the ants
+     * @return AntStore indexed by ant ids
+     */
+    public AntStore getStore() {
+        return store;
+    }
+
+    /**
+     * Returns the neighbour index of the ants
+     * @return AntGrid with every living or just added ant
+     */
+    public AntGrid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Returns id of the ant standing at given position
+     * @param x x position
+     * @param y y position
+     * @param z z position
+     * @return id of the ant or NO_ANT. Used fo communication between ants.
+     */
+    public int getAntAt(int x, int y, int z) {
+        if (! terrain.checkBoundaries(x, y, z))
+            return AntStore.NO_ANT;
+        return positionsOf(x, y).get(AntStore.pack(x, y, z));
+    }
+
+    /**
+     * Returns the position map of the block containing given column
+     * @param x x position
+     * @param y y position
+     * @return AntPositionMap of the block
+     */
+    private AntPositionMap positionsOf(int x, int y) {
+        return positions[(x >> POSITION_BLOCK_BITS) * positionBlocksY + (y >> POSITION_BLOCK_BITS)];
+    }
+
+    /**
+     * Marks an ant as standing at given position
+     * @param x x position
+     * @param y y position
+     * @param z z position
+     * @param id id of the ant
+     */
+    void setAntAt(int x, int y, int z, int id) {
+        positionsOf(x, y).put(AntStore.pack(x, y, z), id);
+    }
+
+    /**
+     * Marks position as free of ants
+     * @param x x position
+     * @param y y position
+     * @param z z position
+     */
+    void clearAntAt(int x, int y, int z) {
+        positionsOf(x, y).remove(AntStore.pack(x, y, z));
+    }
+
+    /**
+     * Returns position of the queens chamber which is important for orientation inside the nest
+     * @return int[3] position or null until the queen settles down
+     */
+    int[] getQueenLoc() {
+        return queenLoc;
+    }
+
+    /**
+     * Sets position of the queens chamber
+     * @param x x position
+     * @param y y position
+     * @param z z position
+     */
+    void setQueenLoc(int x, int y, int z) {
+        queenLoc = new int[] {x, y, z};
+    }
+
+    /**
+     * Creates new ant, gives it an id and adds it to other ants. It is achieved through separate array idsToAdd to avoid adding while iterating over the ants,
+     * the ant starts behaving in the next update.
+     * @param kind one of the kinds in AntStore
+     * @param x x position
+     * @param y y position
+     * @param z z position
+     * @return id of the new ant
+     */
+    public int addAnt(int kind, int x, int y, int z){
+        return addAnt(behaviours, kind, x, y, z);
+    }
+
+    /**
+     * Creates new ant like addAnt(kind, x, y, z). Synchronized since ants ticked in parallel tiles hatch from eggs concurrently.
+     * @param set behaviours of the creator, the new ant is initialized by the one of its kind
+     * @param kind one of the kinds in AntStore
+     * @param x x position
+     * @param y y position
+     * @param z z position
+     * @return id of the new ant
+     */
+    synchronized int addAnt(Ant[] set, int kind, int x, int y, int z){
+        int id;
+        if (freeIdCount > 0){
+            id = freeIds[--freeIdCount];
+        }
+        else{
+            id = nextId++;
+            if (id == slots.length){
+                slots = Arrays.copyOf(slots, slots.length * 2);
+            }
+        }
+        slots[id] = -1;
+        store.reset(id, kind, x, y, z);
+        set[kind].init(id);
+        grid.add(id, x, y, z);
+        if (addCount == idsToAdd.length){
+            idsToAdd = Arrays.copyOf(idsToAdd, addCount * 2);
+        }
+        idsToAdd[addCount++] = id;
+        setAntAt(x, y, z, id);
+        return id;
+    }
+
+    /**
+     * Removes ant from other ants at the beginning of the next update, its id can be used again after that.
+     * @param id id of the ant to remove
+     */
+    public synchronized void removeAnt(int id){
+        if (removeCount == idsToRemove.length){
+            idsToRemove = Arrays.copyOf(idsToRemove, removeCount * 2);
+        }
+        idsToRemove[removeCount++] = id;
+    }
+
+    /**
+     * Adds new ant in place of given egg and removes the egg.
+     * @param egg id of the egg to remove
+     * @param kind kind of the ant to add
+     */
+    public void hatchEgg(int egg, int kind){
+        hatchEgg(behaviours, egg, kind);
+    }
+
+    /**
+     * Adds new ant in place of given egg and removes the egg.
+     * @param set behaviours of the egg, the new ant is initialized by the one of its kind
+     * @param egg id of the egg to remove
+     * @param kind kind of the ant to add
+     */
+    void hatchEgg(Ant[] set, int egg, int kind){
+        if (kind == AntStore.EXPLORER || kind == AntStore.MAINTAINER){
+            addAnt(set, kind, store.x[egg], store.y[egg], store.z[egg]);
+            removeAnt(egg);
+        }
+    }
+
+    /**
+     * Remembers a move of an ant out of reach of its tile, it is made by makeTeleports
+     * @param id id of the ant
+     * @param x x position to move to
+     * @param y y position to move to
+     * @param z z position to move to
+     */
+    synchronized void teleportLater(int id, int x, int y, int z){
+        if (teleportCount == teleportIds.length){
+            teleportIds = Arrays.copyOf(teleportIds, teleportCount * 2);
+            teleportTargets = Arrays.copyOf(teleportTargets, teleportCount * 2);
+        }
+        teleportIds[teleportCount] = id;
+        teleportTargets[teleportCount++] = AntStore.pack(x, y, z);
+    }
+
+    /**
+     * Makes moves remembered by teleportLater in the order of the ants in the ants array, so the result doesn't depend on which tile finished first
+     */
+    void makeTeleports(){
+        long[] order = order(teleportCount);
+        for (int i = 0; i < teleportCount; i++){
+            order[i] = (long) slots[teleportIds[i]] << 32 | i;
+        }
+        Arrays.sort(order, 0, teleportCount);
+        for (int o = 0; o < teleportCount; o++){
+            int i = (int) order[o];
+            int id = teleportIds[i];
+            long target = teleportTargets[i];
+            behaviours[store.kind[id]].moveTo(id, AntStore.unpackX(target), AntStore.unpackY(target), AntStore.unpackZ(target));
+        }
+        teleportCount = 0;
+    }
+
+    /**
+     * Makes room for every id that can be given out during the next update, so that the arrays indexed by ids are not reallocated while ants behave in parallel.
+     * Every ant creates at most one ant per update.
+     * @throws IllegalStateException if the ids wouldn't fit into the sort keys of added ants
+     */
+    void reserveIds(){
+        int capacity = nextId + antCount + 1;
+        if (capacity > 1L << idBits){
+            throw new IllegalStateException("Too many ants for a map of this size");
+        }
+        if (capacity > slots.length){
+            slots = Arrays.copyOf(slots, Math.max(capacity, slots.length * 2));
+        }
+        store.ensureCapacity(capacity);
+        grid.ensureCapacity(capacity);
+    }
+
+    /**
+     * Puts ants added during the last update into the ants array and removes ants waiting for removal.
+     * Every removed ant is replaced by the last ant, so a removal costs the same no matter how many ants there are.
+     * Ants ticked in parallel tiles are added and removed concurrently, so their changes are sorted first (added ants by position, removed ants by their place in the array)
+     * to keep the order of the ants independent of the threads.
+     */
+    private void applyChanges(){
+        if (ticker != null){
+            sortChanges();
+        }
+        if (antCount + addCount > ants.length){
+            ants = Arrays.copyOf(ants, Math.max(ants.length * 2, antCount + addCount));
+        }
+        for (int i = 0; i < addCount; i++){
+            int id = idsToAdd[i];
+            slots[id] = antCount;
+            ants[antCount++] = id;
+        }
+        addCount = 0;
+
+        for (int i = 0; i < removeCount; i++){
+            int id = idsToRemove[i];
+            int slot = slots[id];
+            if (slot < 0){
+                continue;
+            }
+            int last = ants[--antCount];
+            ants[slot] = last;
+            slots[last] = slot;
+            slots[id] = -1;
+            grid.remove(id);
+            if (freeIdCount == freeIds.length){
+                freeIds = Arrays.copyOf(freeIds, freeIdCount * 2);
+            }
+            freeIds[freeIdCount++] = id;
+        }
+        removeCount = 0;
+    }
+
+    /**
+     * Sorts ants waiting for adding by position and kind and ants waiting for removal by their place in the ants array
+     */
+    private void sortChanges(){
+        long[] order = order(Math.max(addCount, removeCount));
+        int height = terrain.getHeight(), depth = terrain.getDepth();
+        for (int i = 0; i < addCount; i++){
+            int id = idsToAdd[i];
+            long voxel = ((long) store.x[id] * height + store.y[id]) * depth + store.z[id];
+            order[i] = (voxel << 2 | store.kind[id]) << idBits | id;
+        }
+        Arrays.sort(order, 0, addCount);
+        long idMask = (1L << idBits) - 1;
+        for (int i = 0; i < addCount; i++){
+            idsToAdd[i] = (int) (order[i] & idMask);
+        }
+
+        for (int i = 0; i < removeCount; i++){
+            int id = idsToRemove[i];
+            order[i] = (long) slots[id] << 32 | id;
+        }
+        Arrays.sort(order, 0, removeCount);
+        for (int i = 0; i < removeCount; i++){
+            idsToRemove[i] = (int) order[i];
+        }
+    }
+
+    /**
+     * Returns the scratch array for sort keys, grown to hold at least given number of keys
+     * @param length number of keys
+     * @return array of at least length keys
+     */
+    private long[] order(int length){
+        if (length > order.length){
+            order = new long[Math.max(length, order.length * 2)];
+        }
+        return order;
+    }
+
+    /**
+     * Tells whether an egg is carried by a maintainer. A carried egg keeps the position it was picked up at, where it no longer stands.
+     * @param egg id of the egg
+     * @return true if the egg is carried
+     */
+    boolean isCarried(int egg){
+        return getAntAt(store.x[egg], store.y[egg], store.z[egg]) != egg;
+    }
+
+    /**
+     * Tells whether given id belongs to a living ant
+     * @param id id of the ant
+     * @return true if the ant lives
+     */
+    public boolean isAlive(int id){
+        return id >= 0 && id < nextId && slots[id] >= 0;
     }
 
     /**
-     * Returns antMap
-     * @return 3D array containing either (and mostly) null or a pointer to Ant. Used fo communication between ants.
+     * Tells whether given id still belongs to the same living ant, ids of removed ants are given to new ones
+     * @param id id of the ant
+     * @param generation generation of the id when the ant was seen (see getGeneration)
+     * @return true if the ant lives
      */
-    public Ant[][][] getAntMap() {
-        return antMap;
+    public boolean isAlive(int id, int generation){
+        return isAlive(id) && store.generation[id] == generation;
     }
 
     /**
-     * Adds ant to other ants. It is achieved through separate list antsToAdd to avoid adding while iterating over the list.
-     * @param ant Ant extending object to add
+     * Returns generation of an id, it changes every time the id is given to a new ant
+     * @param id id of a living ant
+     * @return generation of the id
      */
-    public void addAnt(Ant ant){
-        antsToAdd.add(ant);
-        antMap[ant.posX][ant.posY][ant.posZ] = ant;
+    public int getGeneration(int id){
+        return store.generation[id];
     }
 
     /**
-     * Adds new ant and removes given egg.
-     * @param egg Egg to remove
-     * @param ant Ant to add
+     * Returns behaviour of given ant, its class tells the kind of the ant
+     * @param id id of the ant
+     * @return ExplorerAnt, QueenAnt, AntEgg or MaintainingAnt object shared by all ants of that kind
      */
-    public void hatchEgg(AntEgg egg, Ant ant){
-        addAnt(ant);
-        antsToRemove.add(egg);
+    public Ant getBehaviour(int id){
+        return behaviours[store.kind[id]];
     }
 
     /**
@@ -98,6 +520,6 @@ public class AntManager {
      * @return Number of ants
      */
     public int getNumofAnts(){
-        return ants.size();
+        return antCount;
     }
 }
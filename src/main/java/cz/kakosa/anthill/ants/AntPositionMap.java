@@ -0,0 +1,112 @@
+package cz.kakosa.anthill.ants;
+
+import java.util.Arrays;
+
+/**
+ * Tells which ant stands at a voxel. Open addressing hash table from packed positions (see AntStore.pack) to ant ids
+ * kept in two primitive arrays, so its memory grows with the number of ants instead of the size of the map.
+ * Collisions are resolved by linear probing and removal shifts the following entries back, so no deleted markers pile up.
+ */
+public class AntPositionMap {
+
+    private static final long EMPTY = AntStore.NOWHERE;
+
+    private long[] keys;
+    private int[] ids;
+    private int mask;
+    private int size;
+
+    /**
+     * Creates empty map
+     * @param capacity expected number of ants, the map grows when needed
+     */
+    public AntPositionMap(int capacity) {
+        int slots = Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1) * 2;
+        keys = new long[slots];
+        ids = new int[slots];
+        Arrays.fill(keys, EMPTY);
+        mask = slots - 1;
+    }
+
+    private int slotOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * @param key packed position
+     * @return id of the ant at the position or NO_ANT
+     */
+    public int get(long key) {
+        for (int i = slotOf(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key)
+                return ids[i];
+            if (k == EMPTY)
+                return AntStore.NO_ANT;
+        }
+    }
+
+    /**
+     * Puts ant at the position, replaces the ant that was there
+     * @param key packed position
+     * @param id id of the ant
+     */
+    public void put(long key, int id) {
+        int i = slotOf(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                ids[i] = id;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        ids[i] = id;
+        if (++size * 2 > keys.length)
+            rehash(keys.length * 2);
+    }
+
+    /**
+     * Removes whatever ant is at the position
+     * @param key packed position
+     */
+    public void remove(long key) {
+        int i = slotOf(key);
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY)
+                return;
+            i = (i + 1) & mask;
+        }
+        // shift back entries that probed past the freed slot
+        int free = i;
+        for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slotOf(keys[j]);
+            if (((j - home) & mask) >= ((j - free) & mask)) {
+                keys[free] = keys[j];
+                ids[free] = ids[j];
+                free = j;
+            }
+        }
+        keys[free] = EMPTY;
+        size--;
+    }
+
+    private void rehash(int slots) {
+        long[] oldKeys = keys;
+        int[] oldIds = ids;
+        keys = new long[slots];
+        ids = new int[slots];
+        Arrays.fill(keys, EMPTY);
+        mask = slots - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY)
+                continue;
+            int j = slotOf(oldKeys[i]);
+            while (keys[j] != EMPTY)
+                j = (j + 1) & mask;
+            keys[j] = oldKeys[i];
+            ids[j] = oldIds[i];
+        }
+    }
+}
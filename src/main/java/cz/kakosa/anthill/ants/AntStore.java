@@ -0,0 +1,234 @@
+package cz.kakosa.anthill.ants;
+
+import java.util.Arrays;
+
+/**
+ * State of all the ants kept in parallel primitive arrays indexed by ant id (see AntManager), so an ant is a row of a few dozen bytes
+ * instead of an object with references. Behaviour classes (subclasses of Ant) read and write the arrays directly.
+ * Some arrays mean different things for different kinds of ants, their meaning is described at each of them.
+ */
+public class AntStore {
+
+    public static final int QUEEN = 0, EXPLORER = 1, MAINTAINER = 2, EGG = 3;
+
+    /**
+     * Value of a packed position that is not set
+     */
+    public static final long NOWHERE = -1;
+
+    /**
+     * Value of an id that doesn't belong to any ant
+     */
+    public static final int NO_ANT = -1;
+
+    /**
+     * Value of carrying when the ant carries nothing
+     */
+    public static final byte NO_MATERIAL = -1;
+
+    private static final int COORD_BITS = 21;
+    private static final long COORD_MASK = (1L << COORD_BITS) - 1;
+
+    /**
+     * One of QUEEN, EXPLORER, MAINTAINER or EGG
+     */
+    byte[] kind;
+
+    int[] x, y, z;
+
+    /**
+     * Packed previous position, ants don't step back to it
+     */
+    long[] lastPos;
+
+    /**
+     * Direction the ant follows, every delta is from -1 to 1
+     */
+    byte[] dirX, dirY, dirZ;
+
+    /**
+     * Behavioural mode of explorers and maintainers, 1 for a queen that has settled down and lays eggs
+     */
+    byte[] mode;
+
+    int[] internalClock;
+
+    /**
+     * Explorer: updates of random walk left. Maintainer: time in one mode that is considered too long. Egg: time to hatch.
+     */
+    int[] timer;
+
+    /**
+     * Maintainer: time spent in current mode. Queen: updates it couldn't move for.
+     */
+    int[] counter;
+
+    /**
+     * Maintainer: length of the tunnel left to dig. Queen: workers left to lay without eggs.
+     */
+    int[] remaining;
+
+    /**
+     * Maintainer: how often it changes direction. Queen: index of the direction of digging in Ant.DIRECTION_2D.
+     */
+    byte[] frequency;
+
+    /**
+     * Food eaten by an egg or a queen
+     */
+    int[] foodEaten;
+
+    /**
+     * Id of the carried Material or NO_MATERIAL
+     */
+    byte[] carrying;
+
+    /**
+     * Explorer: packed position of the food source it knows about or NOWHERE
+     */
+    long[] foodLoc;
+
+    /**
+     * Explorer: packed position where it got out of the nest
+     */
+    long[] homeLoc;
+
+    /**
+     * Maintainer: id of the carried egg or NO_ANT. Egg: kind of the ant that hatches from it.
+     */
+    int[] carried;
+
+    /**
+     * Number of times the id was given to an ant, tells apart ants that had the same id one after another
+     */
+    int[] generation;
+
+    /**
+     * Creates store with room for given number of ids, it grows when needed
+     * @param capacity initial number of ids
+     */
+    AntStore(int capacity) {
+        kind = new byte[capacity];
+        x = new int[capacity];
+        y = new int[capacity];
+        z = new int[capacity];
+        lastPos = new long[capacity];
+        dirX = new byte[capacity];
+        dirY = new byte[capacity];
+        dirZ = new byte[capacity];
+        mode = new byte[capacity];
+        internalClock = new int[capacity];
+        timer = new int[capacity];
+        counter = new int[capacity];
+        remaining = new int[capacity];
+        frequency = new byte[capacity];
+        foodEaten = new int[capacity];
+        carrying = new byte[capacity];
+        foodLoc = new long[capacity];
+        homeLoc = new long[capacity];
+        carried = new int[capacity];
+        generation = new int[capacity];
+    }
+
+    /**
+     * Makes room for ids lower than given capacity, so that resetting them doesn't reallocate the arrays
+     * @param capacity number of ids
+     */
+    void ensureCapacity(int capacity) {
+        if (capacity > kind.length)
+            grow(Math.max(capacity, kind.length * 2));
+    }
+
+    /**
+     * Makes room for ids lower than given capacity
+     */
+    private void grow(int capacity) {
+        kind = Arrays.copyOf(kind, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        z = Arrays.copyOf(z, capacity);
+        lastPos = Arrays.copyOf(lastPos, capacity);
+        dirX = Arrays.copyOf(dirX, capacity);
+        dirY = Arrays.copyOf(dirY, capacity);
+        dirZ = Arrays.copyOf(dirZ, capacity);
+        mode = Arrays.copyOf(mode, capacity);
+        internalClock = Arrays.copyOf(internalClock, capacity);
+        timer = Arrays.copyOf(timer, capacity);
+        counter = Arrays.copyOf(counter, capacity);
+        remaining = Arrays.copyOf(remaining, capacity);
+        frequency = Arrays.copyOf(frequency, capacity);
+        foodEaten = Arrays.copyOf(foodEaten, capacity);
+        carrying = Arrays.copyOf(carrying, capacity);
+        foodLoc = Arrays.copyOf(foodLoc, capacity);
+        homeLoc = Arrays.copyOf(homeLoc, capacity);
+        carried = Arrays.copyOf(carried, capacity);
+        generation = Arrays.copyOf(generation, capacity);
+    }
+
+    /**
+     * Sets the row of given id to a new ant standing at given position, other values are zero or unset
+     * @param id id of the ant
+     * @param kind kind of the ant
+     * @param x x position
+     * @param y y position
+     * @param z z position
+     */
+    void reset(int id, int kind, int x, int y, int z) {
+        ensureCapacity(id + 1);
+        this.kind[id] = (byte) kind;
+        this.x[id] = x;
+        this.y[id] = y;
+        this.z[id] = z;
+        lastPos[id] = pack(x, y, z - 1);
+        dirX[id] = 0;
+        dirY[id] = 0;
+        dirZ[id] = 0;
+        mode[id] = 0;
+        internalClock[id] = 0;
+        timer[id] = 0;
+        counter[id] = 0;
+        remaining[id] = 0;
+        frequency[id] = 0;
+        foodEaten[id] = 0;
+        carrying[id] = NO_MATERIAL;
+        foodLoc[id] = NOWHERE;
+        homeLoc[id] = NOWHERE;
+        carried[id] = NO_ANT;
+        generation[id]++;
+    }
+
+    /**
+     * Packs non negative position into a single long
+     * @param x x position
+     * @param y y position
+     * @param z z position
+     * @return packed position
+     */
+    public static long pack(int x, int y, int z) {
+        return ((long) x << 2 * COORD_BITS) | ((long) y << COORD_BITS) | z;
+    }
+
+    /**
+     * @param pos packed position
+     * @return x position
+     */
+    public static int unpackX(long pos) {
+        return (int) (pos >>> 2 * COORD_BITS);
+    }
+
+    /**
+     * @param pos packed position
+     * @return y position
+     */
+    public static int unpackY(long pos) {
+        return (int) ((pos >>> COORD_BITS) & COORD_MASK);
+    }
+
+    /**
+     * @param pos packed position
+     * @return z position
+     */
+    public static int unpackZ(long pos) {
+        return (int) (pos & COORD_MASK);
+    }
+}
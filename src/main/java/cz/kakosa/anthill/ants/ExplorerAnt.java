@@ -11,24 +11,15 @@ import java.util.Random;
 public class ExplorerAnt extends Ant {
 
     public final int GETTING_OUT = 0, FINDING_FOOD = 1, GOING_HOME = 2, STORING = 3, GOING_FOR_FOOD = 4, RANDOM_WALK = 5;
-    int mode = 0;
-    int[] foodLoc;
-    int[] homeLoc;
-
-    int timeInMode;
 
     /**
      * Calls super constructor
-     * @param am AntManager to add itself in
+     * @param am AntManager the ants live in
      * @param r global Random object
-     * @param t Terrain to set up its location
-     * @param x x position
-     * @param y y position
-     * @param z y position
-     * @param queenLoc queenLoc is important  for orientation inside the nest
+     * @param t Terrain the ants live in
      */
-    public ExplorerAnt(AntManager am, Random r, Terrain t, int x, int y, int z, int[] queenLoc){
-        super(am, r, t, x, y, z, queenLoc);
+    public ExplorerAnt(AntManager am, Random r, Terrain t){
+        super(am, r, t, 10);
     }
 
 
@@ -47,150 +38,157 @@ public class ExplorerAnt extends Ant {
      *      Ant knows where the food source is and is making it's way towards it.
      * Random walk:
      *      Ant decides to walk some amount of steps in a random direction.
+     * @param a id of the ant
      */
     @Override
-    public void behaveLikeAnAnt() {
+    public void behaveLikeAnAnt(int a) {
+        int[] queenLoc = antManager.getQueenLoc();
 
-        switch (mode){
+        switch (s.mode[a]){
             case GETTING_OUT: {
-                tellOthers();
-                if (internalClock == 0) {
-                    dirToAirBubble(true);
+                tellOthers(a);
+                if (s.internalClock[a] == 0) {
+                    dirToAirBubble(a, true);
                 }
                 if (r.nextInt(10) == 0) {
-                    stepRandomly();
+                    stepRandomly(a);
                 } else {
-                    solveMovementFromDir();
+                    solveMovementFromDir(a);
                 }
-                internalClock = (internalClock + 1) % 10;
+                s.internalClock[a] = (s.internalClock[a] + 1) % 10;
 
-                if (t.getVoxelAt(posX, posY, posZ - 1) == Material.GRASS || posZ == t.getDepth() * 3 / 2) {
-                    mode = FINDING_FOOD;
-                    dirDeltas = randomDir();
-                    homeLoc = new int[] {posX, posY, posZ};
+                if (t.getVoxelAt(s.x[a], s.y[a], s.z[a] - 1) == Material.GRASS || s.z[a] == t.getDepth() * 3 / 2) {
+                    s.mode[a] = FINDING_FOOD;
+                    setRandomDir(a);
+                    s.homeLoc[a] = AntStore.pack(s.x[a], s.y[a], s.z[a]);
                 }
                 break;
             }
             case FINDING_FOOD:{
                 {
-                    if (posX < 20)
-                        dirDeltas[0] = 1;
-                    if (posX > t.getWidth() - 20)
-                        dirDeltas[0] = -1;
-                    if (posY < 20)
-                        dirDeltas[1] = 1;
-                    if (posY > t.getHeight() - 20)
-                        dirDeltas[1] = -1;
-                    if (posZ < 10)
-                        dirDeltas[2] = 1;
-                    if (posZ > t.getDepth() - 10)
-                        dirDeltas[2] = -1;
+                    if (s.x[a] < 20)
+                        s.dirX[a] = 1;
+                    if (s.x[a] > t.getWidth() - 20)
+                        s.dirX[a] = -1;
+                    if (s.y[a] < 20)
+                        s.dirY[a] = 1;
+                    if (s.y[a] > t.getHeight() - 20)
+                        s.dirY[a] = -1;
+                    if (s.z[a] < 10)
+                        s.dirZ[a] = 1;
+                    if (s.z[a] > t.getDepth() - 10)
+                        s.dirZ[a] = -1;
                 } //Checking boundries
 
-                if (posZ <= queenLoc[2]){
-                    mode = GETTING_OUT;
+                if (s.z[a] <= queenLoc[2]){
+                    s.mode[a] = GETTING_OUT;
                 }
 
-                if (foodLoc == null) {
-                    solveMovementFromDir();
+                if (s.foodLoc[a] == AntStore.NOWHERE) {
+                    solveMovementFromDir(a);
                     if (r.nextInt(40) == 0){
-                        dirDeltas = randomDir();
+                        setRandomDir(a);
                     }
-                    foodLoc = foodInVicinity(visibleRadius);
+                    s.foodLoc[a] = packed(foodInVicinity(a, visibleRadius));
                 }
                 else{
-                    dirDeltas = getDirFromMap(foodLoc[0], foodLoc[1], foodLoc[2] + 1);
+                    long foodLoc = s.foodLoc[a];
+                    setDirTo(a, AntStore.unpackX(foodLoc), AntStore.unpackY(foodLoc), AntStore.unpackZ(foodLoc) + 1);
 
-                    if (r.nextInt(40) == 0 && distTo(foodLoc[0], foodLoc[1], foodLoc[2]) < 7){
-                        foodLoc = foodInVicinity(visibleRadius);
+                    if (r.nextInt(40) == 0 && distTo(a, foodLoc) < 7){
+                        s.foodLoc[a] = packed(foodInVicinity(a, visibleRadius));
                     }
 
                     if(r.nextInt(10)==0){
-                        stepRandomly();
+                        stepRandomly(a);
                     }
                     else {
-                        solveMovementFromDir();
+                        solveMovementFromDir(a);
                     }
 
                 }
 
-                if (t.getVoxelAt(posX, posY, posZ - 1) == Material.FOOD || t.getVoxelAt(posX, posY, posZ - 1) == Material.LEAVES){
-                    pickUpFood();
-                    mode = GOING_HOME;
+                if (t.getVoxelAt(s.x[a], s.y[a], s.z[a] - 1) == Material.FOOD || t.getVoxelAt(s.x[a], s.y[a], s.z[a] - 1) == Material.LEAVES){
+                    pickUpFood(a);
+                    s.mode[a] = GOING_HOME;
                 }
                 break;
             }
             case GOING_HOME:{
-                tellOthers();
+                tellOthers(a);
 
+                long homeLoc = s.homeLoc[a];
                 if (r.nextInt(10) != 0)
-                    dirDeltas = getDirFromMap(homeLoc[0], homeLoc[1], homeLoc[2]);
+                    setDirTo(a, AntStore.unpackX(homeLoc), AntStore.unpackY(homeLoc), AntStore.unpackZ(homeLoc));
                 else
-                    dirDeltas = randomDir();
+                    setRandomDir(a);
 
                 if(r.nextInt(10)==0){
-                    stepRandomly();
+                    stepRandomly(a);
                 }
                 else {
-                    solveMovementFromDir();
+                    solveMovementFromDir(a);
                 }
 
-                if(distTo(homeLoc[0], homeLoc[1], homeLoc[2]) < 10){
-                    mode = STORING;
+                if(distTo(a, homeLoc) < 10){
+                    s.mode[a] = STORING;
                 }
                 break;
             }
             case STORING:{
-                tellOthers();
-                if (internalClock == 0) {
+                tellOthers(a);
+                if (s.internalClock[a] == 0) {
                     if (r.nextInt(10) != 0){
-                        dirToAirBubble(false);
+                        dirToAirBubble(a, false);
                     }
                     else{
-                        dirDeltas = randomDir();
+                        setRandomDir(a);
                     }
 
                 }
 
 
-                solveMovementFromDir();
+                solveMovementFromDir(a);
 
-                internalClock = (internalClock + 1) % 12;
+                s.internalClock[a] = (s.internalClock[a] + 1) % 12;
 
-                if ( r.nextInt(4) == 0 && sizeOfChamber(5) > EGG_SPACE_NEEDED && t.getVoxelAt(posX, posY, posZ - 1).isSolid() && t.getVoxelAt(posX, posY, posZ - 1)!= Material.EGG && posZ < queenLoc[2] - 6){
-                    moveTo(posX, posY, posZ + 1);
-                    t.setVoxelAt(posX, posY, posZ-1, carrying);
-                    carrying = null;
-                    mode = GETTING_OUT;
+                if ( r.nextInt(4) == 0 && sizeOfChamber(a, 5) > EGG_SPACE_NEEDED && t.isSolidAt(s.x[a], s.y[a], s.z[a] - 1) && t.getVoxelAt(s.x[a], s.y[a], s.z[a] - 1)!= Material.EGG && s.z[a] < queenLoc[2] - 6){
+                    if (s.carrying[a] != AntStore.NO_MATERIAL) {
+                        moveTo(a, s.x[a], s.y[a], s.z[a] + 1);
+                        t.setVoxelAt(s.x[a], s.y[a], s.z[a]-1, getCarrying(a));
+                        s.carrying[a] = AntStore.NO_MATERIAL;
+                    }
+                    s.mode[a] = GETTING_OUT;
                 }
 
-                if (t.getVoxelAt(posX, posY, posZ - 1) == Material.GRASS){
-                    mode = GOING_HOME;
+                if (t.getVoxelAt(s.x[a], s.y[a], s.z[a] - 1) == Material.GRASS){
+                    s.mode[a] = GOING_HOME;
                 }
                 break;
             }
             case GOING_FOR_FOOD:{
-                tellOthers();
-                dirDeltas = getDirFromMap(foodLoc[0], foodLoc[1], foodLoc[2]);
+                tellOthers(a);
+                long foodLoc = s.foodLoc[a];
+                setDirTo(a, AntStore.unpackX(foodLoc), AntStore.unpackY(foodLoc), AntStore.unpackZ(foodLoc));
 
                 if (r.nextInt(100) == 0) {
-                    timeInMode = 40;
-                    mode = RANDOM_WALK;
-                    dirDeltas = randomDir();
+                    s.timer[a] = 40;
+                    s.mode[a] = RANDOM_WALK;
+                    setRandomDir(a);
                 }
-                solveMovementFromDir();
+                solveMovementFromDir(a);
 
-                if(distTo(foodLoc[0], foodLoc[1], foodLoc[2]) < 6){
-                    mode = FINDING_FOOD;
+                if(distTo(a, foodLoc) < 6){
+                    s.mode[a] = FINDING_FOOD;
                 }
                 break;
             }
             case RANDOM_WALK: {
-                tellOthers();
-                solveMovementFromDir();
-                timeInMode--;
-                if (timeInMode == 0)
-                    mode = GOING_HOME;
+                tellOthers(a);
+                solveMovementFromDir(a);
+                s.timer[a]--;
+                if (s.timer[a] == 0)
+                    s.mode[a] = GOING_HOME;
                 break;
             }
 
@@ -199,45 +197,56 @@ public class ExplorerAnt extends Ant {
 
     /**
      * Picks up food that is supposed to be directly bellow the ant.
+     * @param a id of the ant
      */
-    private void pickUpFood(){
-        carrying = t.getVoxelAt(posX,posY,posZ-1);
-        t.setVoxelAt(posX, posY, posZ - 1, Material.AIR);
-        moveTo(posX, posY, posZ - 1);
+    private void pickUpFood(int a){
+        s.carrying[a] = (byte) t.getVoxelAt(s.x[a], s.y[a], s.z[a] - 1).getId();
+        t.setVoxelAt(s.x[a], s.y[a], s.z[a] - 1, Material.AIR);
+        moveTo(a, s.x[a], s.y[a], s.z[a] - 1);
     }
 
     /**
-     * Informs nearby ants coordinates of the source of the food it found.
+     * Informs explorers within communication radius about coordinates of the source of the food it found.
+     * @param a id of the ant
      */
-    private void tellOthers(){
-        if (foodLoc != null)
-            for (int z = -communicationRad; z < communicationRad; z++) {
-                for (int x = -communicationRad; x < communicationRad; x++) {
-                    for (int y = -communicationRad; y < communicationRad; y++) {
-                        if (t.checkBoundaries(posX + x, posY + y, posZ + z) && antMap[posX][posY][posZ] != null && antMap[posX][posY][posZ] instanceof ExplorerAnt){
-                            ((ExplorerAnt)antMap[posX][posY][posZ]).haveAChat(foodLoc);
-                        }
-                    }
-                }
-            }
+    private void tellOthers(int a){
+        long foodLoc = s.foodLoc[a];
+        if (foodLoc != AntStore.NOWHERE) {
+            antManager.getGrid().forEachWithin(s.x[a], s.y[a], s.z[a], COMMUNICATION_RAD, other -> {
+                if (other != a && s.kind[other] == AntStore.EXPLORER){
+                    haveAChat(other, foodLoc);
+                }
+            });
+        }
+    }
+
+    /**
+     * Packs position found by a search
+     * @param pos int[3] position or null
+     * @return packed position or NOWHERE for null
+     */
+    private static long packed(int[] pos){
+        return pos == null ? AntStore.NOWHERE : AntStore.pack(pos[0], pos[1], pos[2]);
     }
 
     /**
      * Returns one of 6 behavioural mods the ant is following now.
+     * @param a id of the ant
      * @return integer 0 - 5 depending on the mode.
      */
-    public int getMode() {
-        return mode;
+    public int getMode(int a) {
+        return s.mode[a];
     }
 
     /**
      * Is calle dby other ants. Sets the food location to value the other ants provide.
-     * @param loc
+     * @param a id of the ant
+     * @param loc packed location of the food
      */
-    public void haveAChat(int[] loc){
-        if (mode == FINDING_FOOD){
-            foodLoc = loc;
-            mode = GOING_FOR_FOOD;
+    public void haveAChat(int a, long loc){
+        if (s.mode[a] == FINDING_FOOD){
+            s.foodLoc[a] = loc;
+            s.mode[a] = GOING_FOR_FOOD;
         }
     }
 }
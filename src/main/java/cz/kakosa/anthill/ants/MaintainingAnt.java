@@ -11,29 +11,31 @@ import java.util.Random;
 public class MaintainingAnt extends Ant {
 
     final int GO_UP = 0, GO_DOWN = 1, DIG = 2, PREPARING_DIGING= 3;
-    int mode = 0;
 
-    int dirChangeFrequency = 10;
+    private static final int[][] STRAFE_LEFT_X = {{-1,-1, 0 }, {-1, 0, 1}, {0, 1, 1}};
+    private static final int[][] STRAFE_LEFT_Y = {{0,-1, -1 }, {1, 0, -1}, {1, 1, 0}};
+    private static final int[][] STRAFE_RIGHT_X = {{0, 1, 1 }, {-1, 0, 1}, {-1, -1, 0}};
+    private static final int[][] STRAFE_RIGHT_Y = {{-1,-1, 0}, {-1, 0, 1}, {0, 1, 1}};
 
-    int tunnelLength;
-
-    AntEgg carriedEgg;
-
-
-    boolean carryingFood;
-
-    int timeInMode;
-
-    int inMode = 0;
+    /**
+     * Calles super constructor with lower visible Radius (Area around the ant in which it can "see").
+     * @param am AntManager the ants live in
+     * @param r global Random object
+     * @param t Terrain the ants live in
+     */
+    public MaintainingAnt(AntManager am, Random r, Terrain t){
+        super(am, r, t, 7);
+    }
 
     /**
-     * Calles super constructor, lowers visible Radius (Area around the ant in which it can "see").
      * Randomly initializes timeInMode, which is the time that is considered too long for the ant to be in single behaviour mode.
+     * @param a id of the new ant
      */
-    public MaintainingAnt(AntManager am, Random r, Terrain t, int x, int y, int z, int[] queenLoc){
-        super(am, r, t, x, y, z, queenLoc);
-        visibleRadius = 7;
-        timeInMode = r.nextInt(200) + 400;
+    @Override
+    void init(int a) {
+        super.init(a);
+        s.frequency[a] = 10;
+        s.timer[a] = r.nextInt(200) + 400;
     }
 
     /**
@@ -47,235 +49,247 @@ public class MaintainingAnt extends Ant {
      *      Ant gets up to the queens chamber where it can feed and queen take the egg. After doing either or waiting for long enough it gets into going down mode.
      *Going down:
      *      Ant gets down in the nest, where it looks for food which it either feeds to the eggs or it gets it to the queen by changing mode to going up.
+     * @param a id of the ant
      */
     @Override
-    public void behaveLikeAnAnt() {
+    public void behaveLikeAnAnt(int a) {
+        int[] queenLoc = antManager.getQueenLoc();
 
-        switch (mode){
+        switch (s.mode[a]){
             case PREPARING_DIGING:{
-                solveMovementFromDir();
-                if (t.getVoxelAt(posX + dirDeltas[0], posY + dirDeltas[1], posZ + dirDeltas[2]).isDigable()){
-                    mode = DIG;
-                    tunnelLength = r.nextInt(10) + 20;
+                solveMovementFromDir(a);
+                if (t.getVoxelAt(s.x[a] + s.dirX[a], s.y[a] + s.dirY[a], s.z[a] + s.dirZ[a]).isDigable()){
+                    s.mode[a] = DIG;
+                    s.remaining[a] = r.nextInt(10) + 20;
                 }
                 if (r.nextInt(20) == 0){
-                    dirDeltas = randomDir();
-                    dirDeltas[2] = -1;
+                    setRandomDir(a);
+                    s.dirZ[a] = -1;
                 }
                 break;
             }
             case DIG: {
-                if ( getSupport(posX, posY, posZ) == null){
-                    moveTo(posX, posY, posZ - 1);
+                if ( getSupport(a, s.x[a], s.y[a], s.z[a]) == null){
+                    moveTo(a, s.x[a], s.y[a], s.z[a] - 1);
                 }
-                if (tunnelLength > 0 || posZ > queenLoc[2] - 10) {
-                    solveMovementFromDir();
-                    if (lastPos[2] < posZ){
-                        moveTo(lastPos[0], lastPos[1], lastPos[2]);
+                if (s.remaining[a] > 0 || s.z[a] > queenLoc[2] - 10) {
+                    solveMovementFromDir(a);
+                    long lastPos = s.lastPos[a];
+                    if (AntStore.unpackZ(lastPos) < s.z[a]){
+                        moveTo(a, AntStore.unpackX(lastPos), AntStore.unpackY(lastPos), AntStore.unpackZ(lastPos));
                     }
                     if (r.nextInt(25) == 0) {
-                        strafe();
+                        strafe(a);
                     }
                     int goStraight = r.nextInt(2);
-                    t.makeSphere(posX, posY, posZ + goStraight, 2, 1, 1, 1, Material.AIR, true);
-                    tunnelLength--;
-                    if (sizeOfChamber(6) > EGG_SPACE_NEEDED){
-                        dirFromAirBubble();
+                    t.makeSphere(s.x[a], s.y[a], s.z[a] + goStraight, 2, 1, 1, 1, Material.AIR, true);
+                    s.remaining[a]--;
+                    if (sizeOfChamber(a, 6) > EGG_SPACE_NEEDED){
+                        dirFromAirBubble(a);
                     }
                 }
                 else{ //Create chamber
-                    t.makeSphere(posX, posY, posZ - 4, 6, 1, 1, 1, Material.AIR, true);
-                    mode = GO_UP;
-                    while (getSupport(posX, posY, posZ) == null){
-                        moveTo(posX, posY, posZ - 1);
+                    t.makeSphere(s.x[a], s.y[a], s.z[a] - 4, 6, 1, 1, 1, Material.AIR, true);
+                    s.mode[a] = GO_UP;
+                    while (getSupport(a, s.x[a], s.y[a], s.z[a]) == null){
+                        moveTo(a, s.x[a], s.y[a], s.z[a] - 1);
                     }
                 }
                 break;
             }
             case GO_UP:{
-                if (internalClock == 0) {
+                if (s.internalClock[a] == 0) {
                     if (r.nextInt(16) != 0){
-                        if (posZ > queenLoc[2]){
-                            dirToAirBubble(false);
+                        if (s.z[a] > queenLoc[2]){
+                            dirToAirBubble(a, false);
                         }
                         else{
-                            dirToAirBubble(true);
+                            dirToAirBubble(a, true);
                         }
                     }
                     else{
-                        dirDeltas = randomDir();
+                        setRandomDir(a);
                     }
 
-                    dirChangeFrequency = (dirChangeFrequency + 1) % 20;
+                    s.frequency[a] = (byte) ((s.frequency[a] + 1) % 20);
 
                 }
-                if (distTo(queenLoc[0], queenLoc[1], queenLoc[2]) < 6){
-                    dirDeltas = getDirFromMap(queenLoc[0], queenLoc[1] + r.nextInt(2), queenLoc[2]+1);
-                    if (carriedEgg != null){
-                        internalClock = 1;
-                        dirDeltas = randomDir();
-                        mode = GO_DOWN;
+                if (distTo(a, queenLoc[0], queenLoc[1], queenLoc[2]) < 6){
+                    setDirTo(a, queenLoc[0], queenLoc[1] + r.nextInt(2), queenLoc[2]+1);
+                    if (s.carried[a] != AntStore.NO_ANT){
+                        s.internalClock[a] = 1;
+                        setRandomDir(a);
+                        s.mode[a] = GO_DOWN;
                     }
                 }
 
-                solveMovementFromDir();
+                solveMovementFromDir(a);
 
-                internalClock = (internalClock + 1) % (dirChangeFrequency + 10);
+                s.internalClock[a] = (s.internalClock[a] + 1) % (s.frequency[a] + 10);
 
-                if (t.getVoxelAt(posX, posY, posZ - 1) == Material.EGG && carriedEgg == null && antMap[posX][posY - 1][posZ - 1] != null && antMap[posX][posY - 1][posZ - 1] instanceof QueenAnt){ //Pick up egg
+                if (t.getVoxelAt(s.x[a], s.y[a], s.z[a] - 1) == Material.EGG && s.carried[a] == AntStore.NO_ANT && isKindAt(AntStore.QUEEN, s.x[a], s.y[a] - 1, s.z[a] - 1)){ //Pick up egg
                     //System.out.println("Picking up egg!");
-                    carriedEgg = (AntEgg)antMap[posX][posY][posZ - 1];
-                    antMap[posX][posY][posZ - 1] = null;
-                    t.setVoxelAt(posX, posY, posZ - 1, Material.AIR);
-                    moveTo(posX, posY, posZ - 1);
-                    mode = GO_DOWN;
+                    s.carried[a] = antManager.getAntAt(s.x[a], s.y[a], s.z[a] - 1);
+                    antManager.clearAntAt(s.x[a], s.y[a], s.z[a] - 1);
+                    antManager.getGrid().remove(s.carried[a]);
+                    t.setVoxelAt(s.x[a], s.y[a], s.z[a] - 1, Material.AIR);
+                    moveTo(a, s.x[a], s.y[a], s.z[a] - 1);
+                    s.mode[a] = GO_DOWN;
                 }
-                if (antMap[posX][posY - 1][posZ] != null && antMap[posX][posY - 1][posZ] instanceof QueenAnt ){ //Feed Queen
-                    if (carryingFood && r.nextBoolean()) {
-                        carryingFood = false;
-                        ((QueenAnt) antMap[posX][posY - 1][posZ]).feed();
-                        mode = GO_DOWN;
+                if (isKindAt(AntStore.QUEEN, s.x[a], s.y[a] - 1, s.z[a])){ //Feed Queen
+                    if (s.carrying[a] != AntStore.NO_MATERIAL && r.nextBoolean()) {
+                        s.carrying[a] = AntStore.NO_MATERIAL;
+                        int queen = antManager.getAntAt(s.x[a], s.y[a] - 1, s.z[a]);
+                        ((QueenAnt) antManager.getBehaviour(queen)).feed(queen);
+                        s.mode[a] = GO_DOWN;
                     }
                     else
-                        mode = GO_DOWN;
+                        s.mode[a] = GO_DOWN;
                 }
 
-                if (inMode >= timeInMode){
-                    mode = GO_DOWN;
-                    inMode = 0;
+                if (s.counter[a] >= s.timer[a]){
+                    s.mode[a] = GO_DOWN;
+                    s.counter[a] = 0;
                 }
-                inMode++;
+                s.counter[a]++;
                 break;
             }
 
             case GO_DOWN: {
-                if (internalClock == 0) {
+                if (s.internalClock[a] == 0) {
                     if (r.nextInt(10) != 0){
-                        dirToAirBubble(r.nextBoolean() && r.nextBoolean());
+                        dirToAirBubble(a, r.nextBoolean() && r.nextBoolean());
 
                     }
                     else{
-                        dirDeltas = randomDir();
+                        setRandomDir(a);
                     }
 
-                    dirChangeFrequency = (dirChangeFrequency + 1) % 20;
+                    s.frequency[a] = (byte) ((s.frequency[a] + 1) % 20);
 
                 }
 
-                int[] eggPos = eggInVicinity(4);
-                if (carryingFood && posZ < queenLoc[2] - 5 && eggPos != null && (r.nextBoolean() || r.nextBoolean())){
-                    dirDeltas = getDirFromMap(eggPos[0], eggPos[1], eggPos[2] + 1);
+                boolean carryingFood = s.carrying[a] != AntStore.NO_MATERIAL;
+                int[] eggPos = eggInVicinity(a, 4);
+                if (carryingFood && s.z[a] < queenLoc[2] - 5 && eggPos != null && (r.nextBoolean() || r.nextBoolean())){
+                    setDirTo(a, eggPos[0], eggPos[1], eggPos[2] + 1);
                 }
                 else {
-                    int[] foodPos = foodInVicinity(4);
+                    int[] foodPos = foodInVicinity(a, 4);
                     if(! carryingFood && foodPos != null && (r.nextBoolean() || r.nextBoolean())){
-                        dirDeltas = getDirFromMap(foodPos[0], foodPos[1], foodPos[2] + 1);
+                        setDirTo(a, foodPos[0], foodPos[1], foodPos[2] + 1);
                     }
                 }
 
-                solveMovementFromDir();
+                solveMovementFromDir(a);
 
-                internalClock = (internalClock + 1) % (dirChangeFrequency + 10);
+                s.internalClock[a] = (s.internalClock[a] + 1) % (s.frequency[a] + 10);
 
 
-                if (t.getVoxelAt(posX, posY, posZ - 1) == Material.EGG && carryingFood && ((AntEgg)antMap[posX][posY][posZ - 1]).isHungry()){
-                    antMap[posX][posY][posZ - 1].foodEaten++;
-                    carryingFood = false;
+                if (t.getVoxelAt(s.x[a], s.y[a], s.z[a] - 1) == Material.EGG && s.carrying[a] != AntStore.NO_MATERIAL){
+                    int egg = antManager.getAntAt(s.x[a], s.y[a], s.z[a] - 1);
+                    if (egg != AntStore.NO_ANT && s.kind[egg] == AntStore.EGG && ((AntEgg) antManager.getBehaviour(egg)).isHungry(egg)){
+                        s.foodEaten[egg]++;
+                        s.carrying[a] = AntStore.NO_MATERIAL;
+                    }
                 }
 
-                if (r.nextInt(3) == 0 && carriedEgg != null && sizeOfChamber(5) > EGG_SPACE_NEEDED && t.getVoxelAt(posX, posY, posZ - 1).isSolid() &&
-                        t.getVoxelAt(posX, posY, posZ - 1) != Material.EGG && posZ < queenLoc[2] - 12){
-                    moveTo(posX, posY, posZ + 1);
-                    antMap[posX][posY][posZ - 1] = carriedEgg;
-                    carriedEgg.posX = posX;
-                    carriedEgg.posY = posY;
-                    carriedEgg.posZ = posZ-1;
-                    carriedEgg = null;
-                    t.setVoxelAt(posX, posY, posZ-1, Material.EGG);
-                    mode = GO_UP;
+                int carriedEgg = s.carried[a];
+                if (r.nextInt(3) == 0 && carriedEgg != AntStore.NO_ANT && sizeOfChamber(a, 5) > EGG_SPACE_NEEDED && t.isSolidAt(s.x[a], s.y[a], s.z[a] - 1) &&
+                        t.getVoxelAt(s.x[a], s.y[a], s.z[a] - 1) != Material.EGG && s.z[a] < queenLoc[2] - 12){
+                    moveTo(a, s.x[a], s.y[a], s.z[a] + 1);
+                    antManager.setAntAt(s.x[a], s.y[a], s.z[a] - 1, carriedEgg);
+                    s.x[carriedEgg] = s.x[a];
+                    s.y[carriedEgg] = s.y[a];
+                    s.z[carriedEgg] = s.z[a]-1;
+                    antManager.getGrid().add(carriedEgg, s.x[carriedEgg], s.y[carriedEgg], s.z[carriedEgg]);
+                    s.carried[a] = AntStore.NO_ANT;
+                    t.setVoxelAt(s.x[a], s.y[a], s.z[a]-1, Material.EGG);
+                    s.mode[a] = GO_UP;
                 }
 
-                if (! carryingFood &&  (t.getVoxelAt(posX, posY, posZ - 1) == Material.LEAVES || t.getVoxelAt(posX, posY, posZ - 1) == Material.FOOD)){
-                    carryingFood = true;
-                    t.setVoxelAt(posX, posY, posZ - 1, Material.AIR);
-                    moveTo(posX, posY, posZ - 1);
+                if (s.carrying[a] == AntStore.NO_MATERIAL &&  (t.getVoxelAt(s.x[a], s.y[a], s.z[a] - 1) == Material.LEAVES || t.getVoxelAt(s.x[a], s.y[a], s.z[a] - 1) == Material.FOOD)){
+                    s.carrying[a] = (byte) t.getVoxelAt(s.x[a], s.y[a], s.z[a] - 1).getId();
+                    t.setVoxelAt(s.x[a], s.y[a], s.z[a] - 1, Material.AIR);
+                    moveTo(a, s.x[a], s.y[a], s.z[a] - 1);
                     if (r.nextBoolean())
-                        mode = GO_UP;
+                        s.mode[a] = GO_UP;
                 }
 
-                if (r.nextInt(30) == 0 && shouldIDig(5, 20)){
-                    forceDig();
+                if (r.nextInt(30) == 0 && shouldIDig(a, 5, 20)){
+                    forceDig(a);
                 }
 
-                if (inMode >= timeInMode){
-                    mode = GO_UP;
-                    inMode = 0;
+                if (s.counter[a] >= s.timer[a]){
+                    s.mode[a] = GO_UP;
+                    s.counter[a] = 0;
                 }
-                inMode++;
+                s.counter[a]++;
                 break;
             }
 
         }
-        if (t.getVoxelAt(posX, posY, posZ - 1) == Material.GRASS ){
-            moveTo(queenLoc[0], queenLoc[1] - 1, queenLoc[2] + 2);
+        if (t.getVoxelAt(s.x[a], s.y[a], s.z[a] - 1) == Material.GRASS ){
+            teleport(a, queenLoc[0], queenLoc[1] - 1, queenLoc[2] + 2);
         }
 
     }
 
     /**
      * Returns map location of an egg within given radius
+     * @param a id of the ant
      * @param rad radius of searching box around the ant
      * @return position of first found egg or null if there are none
      */
-    int[] eggInVicinity(int rad){
-        for (int z = rad; z > - rad; z--) {
-            for (int x = - rad; x <=  + rad; x++) {
-                for (int y =  - rad; y <= + rad; y++) {
-                    if (t.checkBoundaries(posX + x, posY + y, posZ + z) && t.getVoxelAt(posX + x, posY + y, posZ + z) == Material.EGG){
-                        return new int[] {posX + x, posY + y, posZ + z};
-                    }
-                }
-            }
-        }
-        return null;
+    int[] eggInVicinity(int a, int rad){
+        return t.findInBox(s.x[a] - rad, s.y[a] - rad, s.z[a] - rad + 1, s.x[a] + rad, s.y[a] + rad, s.z[a] + rad, Material.EGG.getMask());
+    }
+
+    /**
+     * Tells whether an ant of given kind stands at given position
+     * @param kind kind of the ant
+     * @param x x position
+     * @param y y position
+     * @param z z position
+     * @return true if there is an ant of that kind
+     */
+    private boolean isKindAt(int kind, int x, int y, int z){
+        int ant = antManager.getAntAt(x, y, z);
+        return ant != AntStore.NO_ANT && s.kind[ant] == kind;
     }
 
     /**
      * Makes the ant strafe in the direction from the biggest amount of pixels above him.
      * Used when digging to make sure the ant strafes from other chambers
+     * @param a id of the ant
      */
-    void dirFromAirBubble(){
+    void dirFromAirBubble(int a){
 
         int sectorLength = (visibleRadius * 2 + 1) / 3;
         int highest = 0;
         int current;
 
 
-        for (int i = 0; i < direction2D.length; i++) {
-            current = 0;
-            for (int z = 1; z <= visibleRadius; z++)
-                for (int y = - visibleRadius + (direction2D[i][1] + 1) * (sectorLength); y <= - visibleRadius + (direction2D[i][1] + 1) * sectorLength + sectorLength; y++) {
-                    for (int x = - visibleRadius + (direction2D[i][0] + 1) * (sectorLength); x <= - visibleRadius + (direction2D[i][0] + 1) * sectorLength + sectorLength; x++) {
-                        if ( t.checkBoundaries(posX + x, posY + y, posZ + z) && ! t.getVoxelAt(posX + x, posY + y, posZ + z).isSolid()) {
-                            current++;
-                        }
-
-                    }
-                }
+        for (int i = 0; i < DIRECTION_2D.length; i++) {
+            int x0 = s.x[a] - visibleRadius + (DIRECTION_2D[i][0] + 1) * sectorLength;
+            int y0 = s.y[a] - visibleRadius + (DIRECTION_2D[i][1] + 1) * sectorLength;
+            current = t.countAir(x0, y0, s.z[a] + 1, x0 + sectorLength, y0 + sectorLength, s.z[a] + visibleRadius);
             if (current > highest) {
                 highest = current;
-                dirDeltas = new int[] {direction2D[(i + 4) % 8 ][0], direction2D[(i + 4) % 8][1], -1};
+                setDir(a, DIRECTION_2D[(i + 4) % 8 ][0], DIRECTION_2D[(i + 4) % 8][1], -1);
             }
         }
     }
 
     /**
      * Used to check digging conditions - too much food/eggs around and low amount of air pixels below
+     * @param a id of the ant
      * @param rad radius in which to check food/egg number and air pixels
      * @param foodEggThresh Number of food that is considered too much (To much food results in digging)
      * @return true when the conditions for digging are right
      */
-    private boolean shouldIDig(int rad, int foodEggThresh){
+    private boolean shouldIDig(int a, int rad, int foodEggThresh){
+        int posX = s.x[a], posY = s.y[a], posZ = s.z[a];
         int foodEggNum = 0;
         for (int z = rad; z >= -1; z--) {
             for (int x = - rad; x <=  + rad; x++) {
@@ -288,17 +302,7 @@ public class MaintainingAnt extends Ant {
             }
         }
         if ( foodEggNum > foodEggThresh){
-            int air = 0;
-            for (int z = -1; z >= -rad; z--) {
-                for (int x = - rad; x <=  + rad; x++) {
-                    for (int y =  - rad; y <= + rad; y++) {
-                        if (t.checkBoundaries(posX + x, posY + y, posZ + z) &&
-                                (! t.getVoxelAt(posX + x, posY + y, posZ + z).isSolid() ) ){
-                            air++;
-                        }
-                    }
-                }
-            }
+            int air = t.countAir(posX - rad, posY - rad, posZ - rad, posX + rad, posY + rad, posZ - 1);
             if (air < 10)
                 return true;
         }
@@ -308,68 +312,52 @@ public class MaintainingAnt extends Ant {
 
     /**
      * Used externaly when Queen wants more tunnels. Sets mode to Preparing digging.
+     * @param a id of the ant
      */
-    public void forceDig(){
-        dirDeltas = randomDir();
-        dirDeltas[2] = 0;
-        mode = PREPARING_DIGING;
+    public void forceDig(int a){
+        setRandomDir(a);
+        s.dirZ[a] = 0;
+        s.mode[a] = PREPARING_DIGING;
     }
 
     /**
      * Turns 45° in random direction
+     * @param a id of the ant
      */
-    private void strafe(){
+    private void strafe(int a){
         boolean lr = r.nextBoolean();
-        int[][] matrixX;
-        int[][] matrixY;
-
-        if (lr) {
-            matrixX = new int[][]
-                    {{-1,-1, 0 },
-                    {-1, 0, 1},
-                    {0, 1, 1}};
-            matrixY = new int[][]
-                            {{0,-1, -1 },
-                            {1, 0, -1},
-                            {1, 1, 0}};
-        }else{
-            matrixX = new int[][]
-                            {{0, 1, 1 },
-                            {-1, 0, 1},
-                            {-1, -1, 0}};
-            matrixY = new int[][]
-                            {{-1,-1, 0},
-                            {-1, 0, 1},
-                            {0, 1, 1}};
-        }
+        int[][] matrixX = lr ? STRAFE_LEFT_X : STRAFE_RIGHT_X;
+        int[][] matrixY = lr ? STRAFE_LEFT_Y : STRAFE_RIGHT_Y;
 
-        dirDeltas[0] = matrixX[dirDeltas[0] + 1][dirDeltas[1] + 1];
-        dirDeltas[1] = matrixY[dirDeltas[0] + 1][dirDeltas[1] + 1];
+        s.dirX[a] = (byte) matrixX[s.dirX[a] + 1][s.dirY[a] + 1];
+        s.dirY[a] = (byte) matrixY[s.dirX[a] + 1][s.dirY[a] + 1];
 
     }
 
     /**
      * Returns true if the ant carries food
-     * @return carryingFood is variable that indicates the Ant can feed queen or an egg.
+     * @param a id of the ant
+     * @return true if the ant can feed queen or an egg.
      */
-    public boolean isCarryingFood() {
-        return carryingFood;
+    public boolean isCarryingFood(int a) {
+        return s.carrying[a] != AntStore.NO_MATERIAL;
     }
 
     /**
-     * If the ant carries egg, returns pointer to that egg.
-     * @return pointer to carried egg or null if the ant doesn't carry any.
+     * If the ant carries egg, returns id of that egg.
+     * @param a id of the ant
+     * @return id of carried egg or NO_ANT if the ant doesn't carry any.
      */
-    public AntEgg getCarriedEgg() {
-        return carriedEgg;
+    public int getCarriedEgg(int a) {
+        return s.carried[a];
     }
 
     /**
      * Returns one of four behavioural modes the ant is in.
+     * @param a id of the ant
      * @return 0 if the mode is "go up", 1 if "go down", 2 if "dig" and 3 if "prepare digging".
      */
-    public int getMode(){
-        return mode;
+    public int getMode(int a){
+        return s.mode[a];
     }
 }
-
@@ -10,116 +10,117 @@ import java.util.Random;
  */
 public class QueenAnt extends Ant {
 
-    int foodEaten = 100;
-    int notMoved = 0;
-    boolean checkedBirthSpot = false;
-    int instantAnts = 15;
-    int contextDir;
-    final int EXPLORER = 1, MAINTENANCE = 2;
+    final int DIGGING = 0, LAYING = 1;
 
     final public int foodToLayThresh = 5;
 
 
     /**
-     * Constructor calls Ant constructor and sets random direction
-     * @param am AntManager to add itself
-     * @param am AntManager to add itself in
+     * Constructor calls Ant constructor
+     * @param am AntManager the ants live in
      * @param r global Random object
-     * @param t Terrain to set up its location
-     * @param x x position
-     * @param y y position
-     * @param z y position
+     * @param t Terrain the ants live in
      */
-    public QueenAnt(AntManager am, Random r, Terrain t, int x, int y, int z){
-        super(am, r, t, x, y, z, null);
-        contextDir = r.nextInt(8);
+    public QueenAnt(AntManager am, Random r, Terrain t){
+        super(am, r, t, 10);
+    }
+
+    /**
+     * Sets random direction, food for the first workers and their number
+     * @param a id of the new queen
+     */
+    @Override
+    void init(int a) {
+        super.init(a);
+        s.foodEaten[a] = 100;
+        s.remaining[a] = 15;
+        s.frequency[a] = (byte) r.nextInt(8);
     }
 
     /**
      * Queen starts above the ground where it makes its way down into the ground digging the main shaft of the nest.
      * When low enough (or when it hasn't movet for long enough time) it creates a pedistal of 9 stone blocks on which it creates 15 instant workers.
      * After that the queen only accepts food and lays eggs.
+     * @param a id of the queen
      */
     @Override
-    public void behaveLikeAnAnt() {
+    public void behaveLikeAnAnt(int a) {
 
-        t.setVoxelAt(posX, posY, posZ, Material.RED_ANT);
-        antMap[posX][posY][posZ] = this;
+        t.setVoxelAt(s.x[a], s.y[a], s.z[a], Material.RED_ANT);
+        antManager.setAntAt(s.x[a], s.y[a], s.z[a], a);
 
-        if ( getSupport(posX, posY, posZ) == null){
-            moveTo(posX, posY, posZ - 1);
+        if ( getSupport(a, s.x[a], s.y[a], s.z[a]) == null){
+            moveTo(a, s.x[a], s.y[a], s.z[a] - 1);
         }
 
-        else if(posZ > t.getDepth() * 2 / 5 - 5 && notMoved < 50){
+        else if(s.z[a] > t.getDepth() * 2 / 5 - 5 && s.counter[a] < 50){
             if (r.nextInt(14) == 0) {
-                contextDir = (contextDir + 1) % 8;
+                s.frequency[a] = (byte) ((s.frequency[a] + 1) % 8);
             }
-            int newX = posX  + direction2D[contextDir][0] * r.nextInt(2);
-            int newY = posY  + direction2D[contextDir][1] * r.nextInt(2);
-            if (newX != posX || newY != posY) {
-                if (newX < t.getWidth() && newX >= 0 && newY >= 0 && newY < t.getHeight() && ! t.getVoxelAt(newX, newY, posZ).isSolid()) {
-                    moveTo( newX, newY, posZ);
-                    t.makeSphere(posX, posY, posZ + 2, 5, 1, 1, 1, Material.AIR, true);
+            int newX = s.x[a]  + DIRECTION_2D[s.frequency[a]][0] * r.nextInt(2);
+            int newY = s.y[a]  + DIRECTION_2D[s.frequency[a]][1] * r.nextInt(2);
+            if (newX != s.x[a] || newY != s.y[a]) {
+                if (newX < t.getWidth() && newX >= 0 && newY >= 0 && newY < t.getHeight() && ! t.isSolidAt(newX, newY, s.z[a])) {
+                    moveTo(a, newX, newY, s.z[a]);
+                    t.makeSphere(s.x[a], s.y[a], s.z[a] + 2, 5, 1, 1, 1, Material.AIR, true);
                 }
             }
             else{
-                notMoved++;
+                s.counter[a]++;
             }
         }
         else{
-            if (!checkedBirthSpot) {
-                while ( getSupport(posX, posY, posZ) == null){
-                    moveTo(posX, posY, posZ - 1);
-                }
-                t.generateDisc(posX, posY, posZ-1, 2, Material.STONE);
-                for (int y = -2; y <=2 ; y++) {
-                    for (int x = -2; x <=2 ; x++) {
-                        t.setColorMapAt(posX + x, posY + y, posZ - 1);
-                    }
+            if (s.mode[a] == DIGGING) {
+                while ( getSupport(a, s.x[a], s.y[a], s.z[a]) == null){
+                    moveTo(a, s.x[a], s.y[a], s.z[a] - 1);
                 }
-                t.setVoxelAt(posX, posY + 1, posZ, Material.AIR);
-                checkedBirthSpot = true;
-                queenLoc = new int[] {posX, posY, posZ};
+                t.generateDisc(s.x[a], s.y[a], s.z[a]-1, 2, Material.STONE);
+                t.setVoxelAt(s.x[a], s.y[a] + 1, s.z[a], Material.AIR);
+                s.mode[a] = LAYING;
+                antManager.setQueenLoc(s.x[a], s.y[a], s.z[a]);
             }
-            if (foodEaten >= foodToLayThresh && internalClock == 0 && ! t.getVoxelAt(posX, posY + 1, posZ).isSolid()){
-                foodEaten -= foodToLayThresh;
-                if (instantAnts > 0){
-                    if (instantAnts > 5){
-                        antManager.addAnt(new ExplorerAnt(antManager, r, t, posX, posY + 1, posZ, queenLoc));
+            int x = s.x[a], y = s.y[a] + 1, z = s.z[a];
+            if (s.foodEaten[a] >= foodToLayThresh && s.internalClock[a] == 0 && ! t.isSolidAt(x, y, z)){
+                s.foodEaten[a] -= foodToLayThresh;
+                if (s.remaining[a] > 0){
+                    if (s.remaining[a] > 5){
+                        antManager.addAnt(AntStore.EXPLORER, x, y, z);
                     }
                     else{
-                        MaintainingAnt ant = new MaintainingAnt(antManager, r, t, posX, posY + 1, posZ, queenLoc);
-                        if (instantAnts < 4)
-                            ant.forceDig();
-                        antManager.addAnt(ant);
+                        int ant = antManager.addAnt(AntStore.MAINTAINER, x, y, z);
+                        if (s.remaining[a] < 4)
+                            ((MaintainingAnt) antManager.getBehaviour(ant)).forceDig(ant);
                     }
-                    instantAnts--;
+                    s.remaining[a]--;
                 }
                 else{
+                    int egg = antManager.addAnt(AntStore.EGG, x, y, z);
                     if (r.nextInt(4) == 0){
-                        antManager.addAnt(new AntEgg(antManager, r, t, posX, posY + 1, posZ, MAINTENANCE, queenLoc));
+                        s.carried[egg] = AntStore.MAINTAINER;
                     }
                     else{
-                        antManager.addAnt(new AntEgg(antManager, r, t, posX, posY + 1, posZ, EXPLORER, queenLoc));
+                        s.carried[egg] = AntStore.EXPLORER;
                     }
                 }
             }
-            internalClock = (internalClock + 1) % 10;
+            s.internalClock[a] = (s.internalClock[a] + 1) % 10;
         }
     }
 
     /**
      * Called externally to feed the queen. Food makes it lay eggs.
+     * @param a id of the queen
      */
-    public void feed(){
-         foodEaten++;
+    public void feed(int a){
+         s.foodEaten[a]++;
     }
 
     /**
      * Shows current status of the queens hunger.
+     * @param a id of the queen
      * @return foodEaten can be integer from 0 to the value resulting in laying an egg (stored in foodToLayThresh)
      */
-    public int getFoodEaten() {
-        return foodEaten;
+    public int getFoodEaten(int a) {
+        return s.foodEaten[a];
     }
 }
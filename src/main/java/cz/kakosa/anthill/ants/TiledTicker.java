@@ -0,0 +1,200 @@
+package cz.kakosa.anthill.ants;
+
+import cz.kakosa.anthill.RandomStreams;
+import cz.kakosa.anthill.Terrain;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lets the ants behave in parallel. The map is split into tiles of 32x32 columns coloured like a checkerboard with four colours, so tiles of one colour never touch.
+ * Tiles of one colour are ticked at the same time, the colours one after another. An ant behaves in the tile it stood in at the beginning of the update
+ * and can't move more than SLACK columns out of it. Ants look at most 11 columns around them and write at most 6 columns around them, so an ant never touches
+ * voxels, chunks (16 columns), ant positions (blocks of 16 columns) or other ants another tile of the same colour touches, as these tiles are 32 columns apart.
+ * Ants moving further (maintainers going back to the queen) are moved after all the tiles, the queen and carried eggs, which act away from their tile,
+ * behave before the tiles on the calling thread.
+ * Every tile draws from its own Random seeded by the update and the tile, so the ants behave the same no matter the number of threads.
+ */
+final class TiledTicker {
+
+    static final int TILE_BITS = 5;
+
+    /**
+     * Columns an ant may move out of its tile
+     */
+    private static final int SLACK = 4;
+
+    private static final int NO_TILE = -1;
+
+    private final AntManager antManager;
+    private final AntStore store;
+    private final Random r;
+    private final int tilesX, tilesY;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Behaviours of every thread, each set with its own Random reseeded for every tile
+     */
+    private final Ant[][] sets;
+    private final Random[] randoms;
+
+    /**
+     * Ants sorted by tile, ants of a tile are at tileStart[tile] to tileStart[tile + 1] in tileAnts in the order of the ants array
+     */
+    private final int[] tileStart;
+    private int[] tileAnts = new int[64];
+    private int[] antTiles = new int[64];
+
+    /**
+     * Tiles of the colour being ticked that have any ants, threads take them one by one through nextTile
+     */
+    private final int[] phaseTiles;
+    private int phaseTileCount;
+    private final AtomicInteger nextTile = new AtomicInteger();
+
+    private long tickSeed;
+
+    /**
+     * Creates the threads and their behaviours
+     * @param am AntManager the ants live in
+     * @param r global Random object, seeds of the updates are drawn from it
+     * @param t Terrain the ants live in
+     * @param threads number of threads
+     */
+    TiledTicker(AntManager am, Random r, Terrain t, int threads) {
+        antManager = am;
+        store = am.getStore();
+        this.r = r;
+        tilesX = (t.getWidth() >> TILE_BITS) + 1;
+        tilesY = (t.getHeight() >> TILE_BITS) + 1;
+        tileStart = new int[tilesX * tilesY + 1];
+        phaseTiles = new int[tilesX * tilesY];
+        pool = new ForkJoinPool(threads);
+        sets = new Ant[threads][];
+        randoms = new Random[threads];
+        for (int i = 0; i < threads; i++) {
+            randoms[i] = new Random();
+            sets[i] = am.createBehaviours(randoms[i]);
+        }
+    }
+
+    /**
+     * Calls behaviour method for each ant, first for the queen and carried eggs, then tile by tile
+     * @param ants ids of the living ants
+     * @param antCount number of the living ants
+     */
+    void tick(int[] ants, int antCount) {
+        antManager.reserveIds();
+        tickSeed = r.nextLong();
+        if (antTiles.length < antCount) {
+            antTiles = new int[Math.max(antCount, antTiles.length * 2)];
+            tileAnts = new int[antTiles.length];
+        }
+
+        Arrays.fill(tileStart, 0);
+        for (int i = 0; i < antCount; i++) {
+            int a = ants[i];
+            if (actsAnywhere(a)) {
+                antTiles[i] = NO_TILE;
+            }
+            else {
+                antTiles[i] = (store.x[a] >> TILE_BITS) * tilesY + (store.y[a] >> TILE_BITS);
+                tileStart[antTiles[i] + 1]++;
+            }
+        }
+        for (int i = 0; i < antCount; i++) {
+            if (antTiles[i] == NO_TILE)
+                antManager.getBehaviour(ants[i]).behaveLikeAnAnt(ants[i]);
+        }
+
+        for (int tile = 1; tile < tileStart.length; tile++)
+            tileStart[tile] += tileStart[tile - 1];
+        for (int i = 0; i < antCount; i++) {
+            if (antTiles[i] != NO_TILE)
+                tileAnts[tileStart[antTiles[i]]++] = ants[i];
+        }
+        for (int tile = tileStart.length - 1; tile > 0; tile--)
+            tileStart[tile] = tileStart[tile - 1];
+        tileStart[0] = 0;
+
+        for (int color = 0; color < 4; color++) {
+            phaseTileCount = 0;
+            for (int tx = color & 1; tx < tilesX; tx += 2) {
+                for (int ty = color >> 1; ty < tilesY; ty += 2) {
+                    int tile = tx * tilesY + ty;
+                    if (tileStart[tile] != tileStart[tile + 1])
+                        phaseTiles[phaseTileCount++] = tile;
+                }
+            }
+            nextTile.set(0);
+            if (phaseTileCount == 1)
+                work(0);
+            else if (phaseTileCount > 1)
+                pool.invoke(new Phase());
+        }
+        antManager.makeTeleports();
+    }
+
+    /**
+     * Stops the threads, the ticker can't be used after that
+     */
+    void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Tells whether the ant acts away from its tile. The queen lays eggs and feeds the workers when they come, an egg carried by a maintainer
+     * stays at the place it was picked up at until it is dropped.
+     * @param a id of the ant
+     * @return true if the ant has to behave on the calling thread
+     */
+    private boolean actsAnywhere(int a) {
+        int kind = store.kind[a];
+        return kind == AntStore.QUEEN || (kind == AntStore.EGG && antManager.isCarried(a));
+    }
+
+    /**
+     * Ticks tiles of the current colour until there are none left
+     * @param worker index of the set of behaviours to use
+     */
+    private void work(int worker) {
+        Ant[] set = sets[worker];
+        byte[] kinds = store.kind;
+        for (int i = nextTile.getAndIncrement(); i < phaseTileCount; i = nextTile.getAndIncrement()) {
+            int tile = phaseTiles[i];
+            randoms[worker].setSeed(RandomStreams.seedOf(tickSeed, RandomStreams.ANTS, tile));
+            int x0 = (tile / tilesY << TILE_BITS) - SLACK;
+            int y0 = (tile % tilesY << TILE_BITS) - SLACK;
+            int size = (1 << TILE_BITS) + 2 * SLACK;
+            for (Ant behaviour : set)
+                behaviour.setReach(x0, y0, x0 + size, y0 + size);
+            for (int j = tileStart[tile]; j < tileStart[tile + 1]; j++) {
+                int a = tileAnts[j];
+                set[kinds[a]].behaveLikeAnAnt(a);
+            }
+        }
+    }
+
+    /**
+     * Ticks all tiles of the current colour, one worker for each thread
+     */
+    private class Phase extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+            ForkJoinTask<?>[] workers = new ForkJoinTask<?>[sets.length];
+            for (int i = 0; i < sets.length; i++) {
+                final int worker = i;
+                workers[i] = ForkJoinTask.adapt(() -> work(worker));
+            }
+            invokeAll(workers);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package cz.kakosa.anthill.voxels;
+
+import java.util.Arrays;
+
+/**
+ * Colour map kept on the heap in a single flat array of short codes. Layers are stored one after another, so one horizontal layer
+ * (the only thing the camera looks at) is a continuous block of width * height codes and its rows are read in one pass.
+ */
+public class ArrayColorMap extends ColorMap {
+
+    private final short[] codes;
+
+    /**
+     * Allocates colour map where nothing is seen. The map must have less than Integer.MAX_VALUE voxels.
+     * @param width width of the map
+     * @param height height of the map
+     * @param depth depth of the map
+     */
+    public ArrayColorMap(int width, int height, int depth) {
+        super(width, height, depth);
+        long size = (long) width * height * depth;
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Colour map of " + size + " voxels does not fit into a single array");
+        codes = new short[(int) size];
+    }
+
+    private int index(int x, int y, int z) {
+        return (z * height + y) * width + x;
+    }
+
+    @Override
+    public int get(int x, int y, int z) {
+        return codes[index(x, y, z)];
+    }
+
+    @Override
+    public void set(int x, int y, int z, int code) {
+        codes[index(x, y, z)] = (short) code;
+    }
+
+    @Override
+    public void getRow(int z, int y, int x, int length, int[] dest, int offset) {
+        int start = index(x, y, z);
+        for (int i = 0; i < length; i++)
+            dest[offset + i] = codes[start + i];
+    }
+
+    @Override
+    public void setRow(int z, int y, int x, int length, int[] src, int offset) {
+        int start = index(x, y, z);
+        for (int i = 0; i < length; i++)
+            codes[start + i] = (short) src[offset + i];
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(codes, (short) 0);
+    }
+}
@@ -0,0 +1,51 @@
+package cz.kakosa.anthill.voxels;
+
+import cz.kakosa.anthill.Material;
+
+/**
+ * Original layout of the map - three dimensional array of Material references. Kept for comparison with the other storages.
+ * Null is read as AIR.
+ */
+public class ArrayVoxelStorage extends VoxelStorage {
+
+    private Material[][][] voxels;
+
+    /**
+     * Allocates the array
+     * @param width width of the map
+     * @param height height of the map
+     * @param depth depth of the map
+     */
+    public ArrayVoxelStorage(int width, int height, int depth) {
+        super(width, height, depth);
+        voxels = new Material[width][height][depth];
+    }
+
+    @Override
+    public int getId(int x, int y, int z) {
+        Material m = voxels[x][y][z];
+        return m == null ? 0 : m.getId();
+    }
+
+    @Override
+    public void setId(int x, int y, int z, int id) {
+        voxels[x][y][z] = Material.byId(id);
+    }
+
+    @Override
+    public Material get(int x, int y, int z) {
+        Material m = voxels[x][y][z];
+        return m == null ? Material.AIR : m;
+    }
+
+    @Override
+    public void set(int x, int y, int z, Material m) {
+        voxels[x][y][z] = m;
+    }
+
+    @Override
+    public long getMemoryUsage() {
+        // reference per voxel and header of every z array (references are compressed to 4 bytes on usual heaps)
+        return (long) width * height * (depth * 4L + 16) + (long) width * (height * 4L + 16);
+    }
+}
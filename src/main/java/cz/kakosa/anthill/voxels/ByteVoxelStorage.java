@@ -0,0 +1,61 @@
+package cz.kakosa.anthill.voxels;
+
+import java.util.Arrays;
+
+/**
+ * Stores whole map in one flat byte array of material ids. Voxels of one column lie next to each other (z is the fastest changing coordinate),
+ * so column walks and small cubes around the ants stay in few cache lines.
+ */
+public class ByteVoxelStorage extends VoxelStorage {
+
+    private final byte[] voxels;
+
+    /**
+     * Allocates the array. The map must have less than Integer.MAX_VALUE voxels.
+     * @param width width of the map
+     * @param height height of the map
+     * @param depth depth of the map
+     */
+    public ByteVoxelStorage(int width, int height, int depth) {
+        super(width, height, depth);
+        long size = (long) width * height * depth;
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Map of " + size + " voxels does not fit into a single array");
+        voxels = new byte[(int) size];
+    }
+
+    /**
+     * Index of the voxel in the flat array
+     */
+    private int index(int x, int y, int z) {
+        return (x * height + y) * depth + z;
+    }
+
+    @Override
+    public int getId(int x, int y, int z) {
+        return voxels[index(x, y, z)];
+    }
+
+    @Override
+    public void setId(int x, int y, int z, int id) {
+        voxels[index(x, y, z)] = (byte) id;
+    }
+
+    @Override
+    public void fillColumn(int x, int y, int zFrom, int zTo, int id, int replaceMask) {
+        int base = index(x, y, 0);
+        if (replaceMask == ANY) {
+            Arrays.fill(voxels, base + zFrom, base + zTo, (byte) id);
+            return;
+        }
+        for (int i = base + zFrom; i < base + zTo; i++) {
+            if ((replaceMask & (1 << voxels[i])) != 0)
+                voxels[i] = (byte) id;
+        }
+    }
+
+    @Override
+    public long getMemoryUsage() {
+        return voxels.length + 16L;
+    }
+}
@@ -0,0 +1,330 @@
+package cz.kakosa.anthill.voxels;
+
+import cz.kakosa.anthill.Material;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Splits the map into chunks of 16x16x16 voxels. Chunk made of a single material is kept as one byte and gets its own array only when something different is written into it.
+ * Most of the map (sky above the grass and soil under it) stays uniform, so big maps need only a fraction of the memory of ByteVoxelStorage.
+ * Chunks that are not uniform but haven't been written for idleTicks ticks (and all of them after the generation) are packed into a few bits per voxel (see PackedChunk).
+ * Packed chunks are read directly and unpacked on their first write, so only chunks around the digging ants take a byte per voxel.
+ * Chunks may be unpacked while the colours are rebuilt on another thread (packing waits for tick, which is not called then), so the arrays of the chunks are published
+ * through AtomicReferenceArray and a packed chunk stays in place after unpacking until tick drops it. A reader that doesn't see the new array yet still finds valid voxels.
+ */
+public class ChunkedVoxelStorage extends VoxelStorage {
+
+    static final int BITS = 4;
+    static final int SIZE = 1 << BITS;
+    static final int MASK = SIZE - 1;
+    static final int VOLUME = SIZE * SIZE * SIZE;
+
+    /**
+     * Default number of ticks without a write after which a chunk is packed
+     */
+    public static final int IDLE_TICKS = 500;
+
+    /**
+     * Default number of chunks checked for packing every tick
+     */
+    public static final int CHECKED_PER_TICK = 64;
+
+    final int chunksX, chunksY, chunksZ;
+
+    /**
+     * Voxels of chunks that are not uniform, null for uniform and packed chunks
+     */
+    final AtomicReferenceArray<byte[]> chunks;
+
+    /**
+     * Material id of uniform chunks (meaningless for chunks that have their own array)
+     */
+    final byte[] uniform;
+
+    /**
+     * Packed chunks, null for uniform chunks. A chunk with its own array may still have the packed chunk it was unpacked from, it is dropped by tick.
+     */
+    final PackedChunk[] packed;
+
+    /**
+     * Tick of the last write of every chunk
+     */
+    final int[] lastWrite;
+
+    private final int idleTicks;
+    private final int checkedPerTick;
+    private int tick;
+    private int nextChecked;
+
+    /**
+     * Creates storage with all chunks uniformly filled with air, packing chunks after IDLE_TICKS ticks
+     * @param width width of the map
+     * @param height height of the map
+     * @param depth depth of the map
+     */
+    public ChunkedVoxelStorage(int width, int height, int depth) {
+        this(width, height, depth, IDLE_TICKS, CHECKED_PER_TICK);
+    }
+
+    /**
+     * Creates storage with all chunks uniformly filled with air
+     * @param width width of the map
+     * @param height height of the map
+     * @param depth depth of the map
+     * @param idleTicks number of ticks without a write after which a chunk is packed
+     * @param checkedPerTick number of chunks checked for packing every tick
+     */
+    public ChunkedVoxelStorage(int width, int height, int depth, int idleTicks, int checkedPerTick) {
+        super(width, height, depth);
+        if (idleTicks < 1 || checkedPerTick < 1)
+            throw new IllegalArgumentException("Chunks can't be packed after " + idleTicks + " ticks, " + checkedPerTick + " at a time");
+        this.idleTicks = idleTicks;
+        this.checkedPerTick = checkedPerTick;
+        chunksX = (width + MASK) >> BITS;
+        chunksY = (height + MASK) >> BITS;
+        chunksZ = (depth + MASK) >> BITS;
+        chunks = new AtomicReferenceArray<>(chunksX * chunksY * chunksZ);
+        uniform = new byte[chunks.length()];
+        packed = new PackedChunk[chunks.length()];
+        lastWrite = new int[chunks.length()];
+    }
+
+    /**
+     * Index of the chunk containing given voxel
+     */
+    int chunkIndex(int x, int y, int z) {
+        return ((x >> BITS) * chunksY + (y >> BITS)) * chunksZ + (z >> BITS);
+    }
+
+    /**
+     * Index of the voxel inside of its chunk
+     */
+    static int voxelIndex(int x, int y, int z) {
+        return (((x & MASK) << BITS | (y & MASK)) << BITS) | (z & MASK);
+    }
+
+    @Override
+    public int getId(int x, int y, int z) {
+        int c = chunkIndex(x, y, z);
+        byte[] chunk = chunks.get(c);
+        if (chunk != null)
+            return chunk[voxelIndex(x, y, z)];
+        PackedChunk p = packed[c];
+        return p == null ? uniform[c] : p.get(voxelIndex(x, y, z));
+    }
+
+    @Override
+    public void setId(int x, int y, int z, int id) {
+        int c = chunkIndex(x, y, z);
+        byte[] chunk = chunks.get(c);
+        if (chunk == null) {
+            PackedChunk p = packed[c];
+            if (p == null ? uniform[c] == id : p.get(voxelIndex(x, y, z)) == id)
+                return;
+            chunk = expand(c);
+        }
+        chunk[voxelIndex(x, y, z)] = (byte) id;
+        lastWrite[c] = tick;
+    }
+
+    /**
+     * Gives uniform or packed chunk its own array filled with its voxels. The array is published only when it is filled
+     * and the packed chunk is kept for readers that don't see the array yet.
+     * @param c index of the chunk
+     * @return the new array of the chunk
+     */
+    byte[] expand(int c) {
+        byte[] chunk = new byte[VOLUME];
+        PackedChunk p = packed[c];
+        if (p == null)
+            Arrays.fill(chunk, uniform[c]);
+        else
+            p.unpack(chunk);
+        chunks.set(c, chunk);
+        return chunk;
+    }
+
+    @Override
+    public void fillColumn(int x, int y, int zFrom, int zTo, int id, int replaceMask) {
+        int z = zFrom;
+        while (z < zTo) {
+            int end = Math.min(zTo, (z | MASK) + 1);
+            int c = chunkIndex(x, y, z);
+            byte[] chunk = chunks.get(c);
+            int base = voxelIndex(x, y, 0);
+            if (chunk == null && packed[c] == null && (uniform[c] == id || (replaceMask & (1 << uniform[c])) == 0)) {
+                z = end;
+                continue;
+            }
+            if (chunk == null && packed[c] != null && ! packed[c].changes(base + (z & MASK), base + ((end - 1) & MASK), id, replaceMask)) {
+                z = end;
+                continue;
+            }
+            if (chunk == null)
+                chunk = expand(c);
+            lastWrite[c] = tick;
+            for (int i = base + (z & MASK); i <= base + ((end - 1) & MASK); i++) {
+                if ((replaceMask & (1 << chunk[i])) != 0)
+                    chunk[i] = (byte) id;
+            }
+            z = end;
+        }
+    }
+
+    @Override
+    public int firstSolidFrom(int x, int y, int zFrom) {
+        int z = zFrom;
+        while (z < depth) {
+            int c = chunkIndex(x, y, z);
+            if (chunks.get(c) == null && packed[c] == null) {
+                if (Material.byId(uniform[c]).isSolid())
+                    return z;
+                z = (z | MASK) + 1;
+                continue;
+            }
+            if (Material.byId(getId(x, y, z)).isSolid())
+                return z;
+            z++;
+        }
+        return depth;
+    }
+
+    /**
+     * Turns chunks that hold only one material back into uniform chunks and packs the rest
+     */
+    @Override
+    public void compact() {
+        for (int c = 0; c < chunks.length(); c++) {
+            if (chunks.get(c) != null)
+                pack(c);
+        }
+    }
+
+    /**
+     * Packs a few chunks that haven't been written for idleTicks ticks. The whole map is checked once every chunks / checkedPerTick ticks.
+     * Checked chunks that are written to drop the packed chunk they were unpacked from. Not called while the voxels are read from another thread.
+     */
+    @Override
+    public void tick() {
+        tick++;
+        for (int i = 0; i < checkedPerTick && i < chunks.length(); i++) {
+            int c = nextChecked;
+            nextChecked = (nextChecked + 1) % chunks.length();
+            if (chunks.get(c) == null)
+                continue;
+            if (tick - lastWrite[c] >= idleTicks)
+                pack(c);
+            else
+                packed[c] = null;
+        }
+    }
+
+    /**
+     * Turns chunk with its own array into uniform chunk if it holds a single material or into packed chunk otherwise.
+     * The new form is ready before the array is dropped, so readers always find the voxels.
+     * @param c index of the chunk
+     */
+    void pack(int c) {
+        byte[] chunk = chunks.get(c);
+        byte first = chunk[0];
+        int i = 1;
+        while (i < VOLUME && chunk[i] == first)
+            i++;
+        if (i == VOLUME) {
+            uniform[c] = first;
+            packed[c] = null;
+        }
+        else {
+            packed[c] = new PackedChunk(chunk);
+        }
+        chunks.set(c, null);
+    }
+
+    @Override
+    public long getMemoryUsage() {
+        long size = chunks.length() * 13L + 48;
+        for (int c = 0; c < chunks.length(); c++) {
+            if (chunks.get(c) != null)
+                size += VOLUME + 16;
+            if (packed[c] != null)
+                size += packed[c].getMemoryUsage();
+        }
+        return size;
+    }
+
+    /**
+     * Chunk of a few materials stored as indexes into a palette of its materials, packed into longs by 1, 2 or 4 bits.
+     * Voxels are in the same order as in the arrays of the chunks. The chunk never changes, writes unpack it into an array first.
+     */
+    static final class PackedChunk {
+
+        private final byte[] palette;
+        private final int bits;
+        private final long[] data;
+
+        /**
+         * Packs voxels of a chunk
+         * @param chunk VOLUME material ids
+         */
+        PackedChunk(byte[] chunk) {
+            int[] index = new int[256];
+            Arrays.fill(index, -1);
+            byte[] materials = new byte[16];
+            int count = 0;
+            for (byte id : chunk) {
+                if (index[id & 0xff] < 0) {
+                    if (count == materials.length)
+                        materials = Arrays.copyOf(materials, count * 2);
+                    materials[count] = id;
+                    index[id & 0xff] = count++;
+                }
+            }
+            palette = Arrays.copyOf(materials, count);
+            int b = 1;
+            while (1 << b < count)
+                b <<= 1;
+            bits = b;
+            data = new long[VOLUME * bits / 64];
+            for (int i = 0; i < VOLUME; i++)
+                data[i * bits >>> 6] |= (long) index[chunk[i] & 0xff] << (i * bits & 63);
+        }
+
+        /**
+         * @param i index of the voxel in the chunk (see voxelIndex)
+         * @return material id of the voxel
+         */
+        int get(int i) {
+            int shift = i * bits;
+            return palette[(int) (data[shift >>> 6] >>> (shift & 63)) & ((1 << bits) - 1)];
+        }
+
+        /**
+         * Writes all voxels into an array
+         * @param chunk array of VOLUME bytes
+         */
+        void unpack(byte[] chunk) {
+            for (int i = 0; i < VOLUME; i++)
+                chunk[i] = (byte) get(i);
+        }
+
+        /**
+         * Tells if filling voxels from..to (inclusive) would change anything
+         */
+        boolean changes(int from, int to, int id, int replaceMask) {
+            for (int i = from; i <= to; i++) {
+                int old = get(i);
+                if (old != id && (replaceMask & (1 << old)) != 0)
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * @return approximate size in bytes
+         */
+        long getMemoryUsage() {
+            return data.length * 8L + palette.length + 64;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package cz.kakosa.anthill.voxels;
+
+/**
+ * Colour map holds what the camera sees at each voxel of the map as a colour code (see ColorPalette). It is used for rendering.
+ * Codes fit into 12 bits, so maps store them in shorts and the palette turns them into colours only for the rendered rows.
+ */
+public abstract class ColorMap {
+
+    protected final int width, height, depth;
+
+    /**
+     * Sets dimensions of the map
+     * @param width width of the map
+     * @param height height of the map
+     * @param depth depth of the map
+     */
+    protected ColorMap(int width, int height, int depth) {
+        this.width = width;
+        this.height = height;
+        this.depth = depth;
+    }
+
+    /**
+     * Returns colour code of given voxel
+     * @param x x position
+     * @param y y position
+     * @param z z position
+     * @return colour code
+     */
+    public abstract int get(int x, int y, int z);
+
+    /**
+     * Sets colour code of given voxel
+     * @param x x position
+     * @param y y position
+     * @param z z position
+     * @param code colour code
+     */
+    public abstract void set(int x, int y, int z, int code);
+
+    /**
+     * Copies colour codes of part of a row of one horizontal layer. Used by rendering, which reads whole rows of the visible layer.
+     * @param z layer of the row
+     * @param y y position of the row
+     * @param x x position of the first copied code
+     * @param length number of copied codes
+     * @param dest array to copy the codes into
+     * @param offset position in dest where the first code goes
+     */
+    public void getRow(int z, int y, int x, int length, int[] dest, int offset) {
+        for (int i = 0; i < length; i++)
+            dest[offset + i] = get(x + i, y, z);
+    }
+
+    /**
+     * Sets colour codes of part of a row of one horizontal layer at once. Used when loading saved colours.
+     * @param z layer of the row
+     * @param y y position of the row
+     * @param x x position of the first set code
+     * @param length number of set codes
+     * @param src array with the codes
+     * @param offset position in src of the first code
+     */
+    public void setRow(int z, int y, int x, int length, int[] src, int offset) {
+        for (int i = 0; i < length; i++)
+            set(x + i, y, z, src[offset + i]);
+    }
+
+    /**
+     * Tells the colour map that voxels of a column changed. Precomputed maps are updated by the one who changed the voxels, so they ignore it.
+     * @param x x position of the column
+     * @param y y position of the column
+     */
+    public void invalidate(int x, int y) {
+    }
+
+    /**
+     * Returns whether the colours are computed in advance and set from outside (by Terrain.updateColor) or computed by the map itself when asked for
+     * @return true if the colours have to be computed and set from outside
+     */
+    public boolean isPrecomputed() {
+        return true;
+    }
+
+    /**
+     * Sets every code of the map to ColorPalette.NONE
+     */
+    public abstract void clear();
+}
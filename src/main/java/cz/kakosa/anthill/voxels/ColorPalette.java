@@ -0,0 +1,73 @@
+package cz.kakosa.anthill.voxels;
+
+import cz.kakosa.anthill.Material;
+
+/**
+ * Colour maps don't store colours but short codes of what the camera sees at a voxel: id of the seen material and its distance below the voxel.
+ * Code id &lt;&lt; 8 | k means the voxel is lit by material id k voxels below it, code id &lt;&lt; 8 (distance 0) is a solid voxel of material id
+ * seen directly and code 0 (air at distance 0) is a voxel where nothing is seen. Codes are turned into colours by the palette when rendering,
+ * so other colours (like a tint) are just another palette.
+ */
+public final class ColorPalette {
+
+    /**
+     * Code of a voxel where nothing is seen
+     */
+    public static final int NONE = 0;
+
+    /**
+     * Highest distance a code can hold, visual depth has to be smaller
+     */
+    public static final int MAX_DISTANCE = 255;
+
+    private final int[] colors = new int[Material.values().length << 8];
+
+    /**
+     * Creates the usual palette: solid voxels are black (ants red) and a material seen from distance k
+     * has its colour dimmed by multiplying with 0.92 k - 1 times
+     */
+    public ColorPalette() {
+        for (Material m : Material.values()) {
+            int origColor = m.getColor();
+            int origR = (origColor - 0xff000000) / 0x10000;
+            int origG = ((origColor - 0xff000000) % 0x10000) / 0x100;
+            int origB = ((origColor - 0xff000000) % 0x100);
+            int base = m.getId() << 8;
+            colors[base] = m == Material.RED_ANT ? 0xffff0000 : m.isSolid() ? 0xff000000 : 0;
+            float dc = 1f;
+            for (int k = 1; k <= MAX_DISTANCE; k++) {
+                colors[base | k] = (int)(origR * dc) * 0x10000 + (int)(origG * dc) * 0x100 + (int)(origB * dc);
+                dc *= 0.92f;
+            }
+        }
+    }
+
+    /**
+     * Returns code of a voxel
+     * @param id id of the seen material
+     * @param k distance of the material below the voxel, 0 for a solid voxel seen directly
+     * @return colour code
+     */
+    public static int code(int id, int k) {
+        return id << 8 | k;
+    }
+
+    /**
+     * @param code colour code
+     * @return colour in format 0x(ff)######
+     */
+    public int color(int code) {
+        return colors[code];
+    }
+
+    /**
+     * Turns codes into colours in place
+     * @param codes array of codes
+     * @param offset position of the first code
+     * @param length number of codes
+     */
+    public void resolve(int[] codes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++)
+            codes[i] = colors[codes[i]];
+    }
+}
@@ -0,0 +1,48 @@
+package cz.kakosa.anthill.voxels;
+
+/**
+ * Colour map stored in a memory-mapped file (see MappedWorld) as short codes. One horizontal layer of the map is a continuous block of the file.
+ */
+public class MappedColorMap extends ColorMap {
+
+    private final MappedRegion region;
+
+    MappedColorMap(MappedRegion region, int width, int height, int depth) {
+        super(width, height, depth);
+        this.region = region;
+    }
+
+    private long index(int x, int y, int z) {
+        return (((long) z * height + y) * width + x) * 2;
+    }
+
+    @Override
+    public int get(int x, int y, int z) {
+        return region.getShort(index(x, y, z));
+    }
+
+    @Override
+    public void set(int x, int y, int z, int code) {
+        region.putShort(index(x, y, z), (short) code);
+    }
+
+    @Override
+    public void getRow(int z, int y, int x, int length, int[] dest, int offset) {
+        long start = index(x, y, z);
+        for (int i = 0; i < length; i++)
+            dest[offset + i] = region.getShort(start + i * 2L);
+    }
+
+    @Override
+    public void clear() {
+        for (long i = 0; i < (long) width * height * depth; i++)
+            region.putShort(i * 2, (short) 0);
+    }
+
+    /**
+     * Writes the colours to the disk
+     */
+    void force() {
+        region.force();
+    }
+}
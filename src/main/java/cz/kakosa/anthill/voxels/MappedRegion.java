@@ -0,0 +1,72 @@
+package cz.kakosa.anthill.voxels;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Part of a file mapped into memory. A single MappedByteBuffer can address at most 2 GB, so bigger regions are mapped as several segments.
+ */
+class MappedRegion {
+
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Maps the region of the file for reading and writing. The file grows if it is shorter than the region.
+     * @param channel opened file
+     * @param offset position of the region in the file
+     * @param length length of the region in bytes
+     * @throws IOException if the file can't be mapped
+     */
+    MappedRegion(FileChannel channel, long offset, long length) throws IOException {
+        segments = new MappedByteBuffer[(int) ((length + SEGMENT_MASK) >>> SEGMENT_BITS)];
+        for (int i = 0; i < segments.length; i++) {
+            long start = (long) i << SEGMENT_BITS;
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, offset + start, Math.min(length - start, 1L << SEGMENT_BITS));
+            segments[i].order(ByteOrder.nativeOrder());
+        }
+    }
+
+    byte getByte(long index) {
+        return segments[(int) (index >>> SEGMENT_BITS)].get((int) (index & SEGMENT_MASK));
+    }
+
+    void putByte(long index, byte value) {
+        segments[(int) (index >>> SEGMENT_BITS)].put((int) (index & SEGMENT_MASK), value);
+    }
+
+    /**
+     * Reads short at given byte index. Index has to be aligned to 2 bytes so the short doesn't cross segments.
+     */
+    short getShort(long index) {
+        return segments[(int) (index >>> SEGMENT_BITS)].getShort((int) (index & SEGMENT_MASK));
+    }
+
+    void putShort(long index, short value) {
+        segments[(int) (index >>> SEGMENT_BITS)].putShort((int) (index & SEGMENT_MASK), value);
+    }
+
+    /**
+     * Reads int at given byte index. Index has to be aligned to 4 bytes so the int doesn't cross segments.
+     */
+    int getInt(long index) {
+        return segments[(int) (index >>> SEGMENT_BITS)].getInt((int) (index & SEGMENT_MASK));
+    }
+
+    void putInt(long index, int value) {
+        segments[(int) (index >>> SEGMENT_BITS)].putInt((int) (index & SEGMENT_MASK), value);
+    }
+
+    /**
+     * Writes all changes of the region to the disk
+     */
+    void force() {
+        for (MappedByteBuffer segment : segments)
+            segment.force();
+    }
+}
@@ -0,0 +1,44 @@
+package cz.kakosa.anthill.voxels;
+
+/**
+ * Voxels stored as material ids in a memory-mapped file (see MappedWorld). Layout is the same as in ByteVoxelStorage.
+ */
+public class MappedVoxelStorage extends VoxelStorage {
+
+    private final MappedRegion region;
+
+    MappedVoxelStorage(MappedRegion region, int width, int height, int depth) {
+        super(width, height, depth);
+        this.region = region;
+    }
+
+    private long index(int x, int y, int z) {
+        return ((long) x * height + y) * depth + z;
+    }
+
+    @Override
+    public int getId(int x, int y, int z) {
+        return region.getByte(index(x, y, z));
+    }
+
+    @Override
+    public void setId(int x, int y, int z, int id) {
+        region.putByte(index(x, y, z), (byte) id);
+    }
+
+    /**
+     * Mapped voxels live outside of the heap
+     * @return 0
+     */
+    @Override
+    public long getMemoryUsage() {
+        return 0;
+    }
+
+    /**
+     * Writes the voxels to the disk
+     */
+    void force() {
+        region.force();
+    }
+}
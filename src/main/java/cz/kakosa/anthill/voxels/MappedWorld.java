@@ -0,0 +1,174 @@
+package cz.kakosa.anthill.voxels;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * World file whose voxels and colour map are memory-mapped, so they live outside of the Java heap and the OS pages them in and out as needed.
+ * The file starts with a header that says whether the map was generated completely and whether the stored colours are valid.
+ * The flags are set only after the data are forced to the disk, so a world reopened after a crash is either complete or gets regenerated.
+ */
+public class MappedWorld implements Closeable {
+
+    private static final int MAGIC = 0x414e5448; // "ANTH"
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 4096;
+
+    private static final int GENERATED = 1, COLORS_VALID = 2;
+
+    private final FileChannel channel;
+    private final MappedRegion header;
+    private final int width, height, depth;
+    private final MappedVoxelStorage voxels;
+    private final MappedColorMap colors;
+
+    /**
+     * Opens world file or creates a new one. If the file exists, dimensions stored in it are used instead of the given ones.
+     * @param file path to the world file
+     * @param width width of a new map
+     * @param height height of a new map
+     * @param depth depth of a new map
+     * @return opened world
+     * @throws IOException if the file can't be read, has unknown format or can't be mapped
+     */
+    public static MappedWorld open(Path file, int width, int height, int depth) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() >= HEADER_SIZE) {
+                ByteBuffer buffer = ByteBuffer.allocate(20).order(ByteOrder.nativeOrder());
+                channel.read(buffer, 0);
+                buffer.flip();
+                int magic = buffer.getInt();
+                if (magic != 0) { // zero magic means the file was not initialized completely
+                    if (magic != MAGIC || buffer.getInt() != VERSION)
+                        throw new IOException(file + " is not a world file");
+                    width = buffer.getInt();
+                    height = buffer.getInt();
+                    depth = buffer.getInt();
+                }
+            }
+            return new MappedWorld(channel, width, height, depth);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private MappedWorld(FileChannel channel, int width, int height, int depth) throws IOException {
+        this.channel = channel;
+        this.width = width;
+        this.height = height;
+        this.depth = depth;
+        long volume = (long) width * height * depth;
+        long colorsOffset = HEADER_SIZE + (volume + HEADER_SIZE - 1) / HEADER_SIZE * HEADER_SIZE;
+        header = new MappedRegion(channel, 0, HEADER_SIZE);
+        voxels = new MappedVoxelStorage(new MappedRegion(channel, HEADER_SIZE, volume), width, height, depth);
+        colors = new MappedColorMap(new MappedRegion(channel, colorsOffset, volume * 2), width, height, depth);
+        if (header.getInt(0) != MAGIC) {
+            header.putInt(4, VERSION);
+            header.putInt(8, width);
+            header.putInt(12, height);
+            header.putInt(16, depth);
+            header.putInt(20, 0);
+            header.force();
+            header.putInt(0, MAGIC);
+            header.force();
+        }
+    }
+
+    /**
+     * @return true if the map in the file was generated completely
+     */
+    public boolean isGenerated() {
+        return (header.getInt(20) & GENERATED) != 0;
+    }
+
+    /**
+     * Writes the voxels to the disk and marks the map as completely generated
+     */
+    public void setGenerated() {
+        voxels.force();
+        setFlag(GENERATED, true);
+    }
+
+    /**
+     * Returns whether the stored colour map was computed completely for given visual depth. Colours are stored without x-ray.
+     * @param visDepth visual depth of the colours
+     * @return true if the colour map can be used without recomputing
+     */
+    public boolean hasColors(int visDepth) {
+        return (header.getInt(20) & COLORS_VALID) != 0 && header.getInt(24) == visDepth;
+    }
+
+    /**
+     * Marks colour map as being recomputed. Reopening the file before setColorsValid is called recomputes the colours.
+     */
+    public void invalidateColors() {
+        setFlag(COLORS_VALID, false);
+    }
+
+    /**
+     * Writes colours to the disk and marks them as valid for given visual depth
+     * @param visDepth visual depth of the colours
+     */
+    public void setColorsValid(int visDepth) {
+        colors.force();
+        header.putInt(24, visDepth);
+        setFlag(COLORS_VALID, true);
+    }
+
+    private synchronized void setFlag(int flag, boolean value) {
+        int flags = header.getInt(20);
+        header.putInt(20, value ? flags | flag : flags & ~flag);
+        header.force();
+    }
+
+    /**
+     * @return voxels stored in the file
+     */
+    public VoxelStorage getVoxels() {
+        return voxels;
+    }
+
+    /**
+     * @return colour map stored in the file
+     */
+    public ColorMap getColors() {
+        return colors;
+    }
+
+    /**
+     * @return width of the map in the file
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return height of the map in the file
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return depth of the map in the file
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Closes the file. Mapped data are written by the OS even after closing.
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
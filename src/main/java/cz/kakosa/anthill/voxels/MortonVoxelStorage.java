@@ -0,0 +1,129 @@
+package cz.kakosa.anthill.voxels;
+
+/**
+ * Splits the map into blocks of 8x8x8 voxels kept one after another in a single byte array. Inside a block, voxels are in Morton (Z-curve) order,
+ * their index interleaves bits of the x, y and z position in the block. A small box around an ant then lies in a few blocks
+ * and every 64 bytes (a cache line) hold a 4x4x4 cube instead of a piece of a single column.
+ */
+public class MortonVoxelStorage extends VoxelStorage {
+
+    static final int BITS = 3;
+    static final int SIZE = 1 << BITS;
+    static final int MASK = SIZE - 1;
+    static final int VOLUME_BITS = 3 * BITS;
+
+    /**
+     * Position inside a block with its bits spread to every third bit, index of a voxel in its block is SPREAD_X[x] | SPREAD_Y[y] | SPREAD_Z[z]
+     */
+    private static final int[] SPREAD_X = new int[SIZE], SPREAD_Y = new int[SIZE], SPREAD_Z = new int[SIZE];
+
+    static {
+        for (int i = 0; i < SIZE; i++) {
+            int spread = 0;
+            for (int b = 0; b < BITS; b++)
+                spread |= ((i >> b) & 1) << (3 * b);
+            SPREAD_Z[i] = spread;
+            SPREAD_Y[i] = spread << 1;
+            SPREAD_X[i] = spread << 2;
+        }
+    }
+
+    private final int blocksY, blocksZ;
+    private final byte[] voxels;
+
+    /**
+     * Creates storage filled with air. Dimensions are rounded up to whole blocks.
+     * @param width width of the map
+     * @param height height of the map
+     * @param depth depth of the map
+     */
+    public MortonVoxelStorage(int width, int height, int depth) {
+        super(width, height, depth);
+        int blocksX = (width + MASK) >> BITS;
+        blocksY = (height + MASK) >> BITS;
+        blocksZ = (depth + MASK) >> BITS;
+        voxels = new byte[Math.multiplyExact(blocksX * blocksY * blocksZ, 1 << VOLUME_BITS)];
+    }
+
+    /**
+     * Index of the first voxel of the block containing given voxel
+     */
+    private int blockIndex(int x, int y, int z) {
+        return (((x >> BITS) * blocksY + (y >> BITS)) * blocksZ + (z >> BITS)) << VOLUME_BITS;
+    }
+
+    private int index(int x, int y, int z) {
+        return blockIndex(x, y, z) | SPREAD_X[x & MASK] | SPREAD_Y[y & MASK] | SPREAD_Z[z & MASK];
+    }
+
+    @Override
+    public int getId(int x, int y, int z) {
+        return voxels[index(x, y, z)];
+    }
+
+    @Override
+    public void setId(int x, int y, int z, int id) {
+        voxels[index(x, y, z)] = (byte) id;
+    }
+
+    @Override
+    public void fillColumn(int x, int y, int zFrom, int zTo, int id, int replaceMask) {
+        int column = SPREAD_X[x & MASK] | SPREAD_Y[y & MASK];
+        for (int z = zFrom; z < zTo; z++) {
+            int i = blockIndex(x, y, z) | column | SPREAD_Z[z & MASK];
+            if ((replaceMask & (1 << voxels[i])) != 0)
+                voxels[i] = (byte) id;
+        }
+    }
+
+    /**
+     * Goes through the box a layer of blocks at a time from the top. Only the best voxel of every block is compared,
+     * and the search stops at the first layer of blocks that has any, since lower layers can't have a higher voxel.
+     */
+    @Override
+    public int[] findInBox(int x0, int y0, int z0, int x1, int y1, int z1, int mask) {
+        x0 = Math.max(x0, 0);
+        y0 = Math.max(y0, 0);
+        z0 = Math.max(z0, 0);
+        x1 = Math.min(x1, width - 1);
+        y1 = Math.min(y1, height - 1);
+        z1 = Math.min(z1, depth - 1);
+        if (x0 > x1 || y0 > y1)
+            return null;
+        for (int bz = z1 >> BITS; bz >= z0 >> BITS; bz--) {
+            int zLow = Math.max(z0, bz << BITS), zHigh = Math.min(z1, bz << BITS | MASK);
+            int bestX = 0, bestY = 0, bestZ = -1;
+            for (int bx = x0 >> BITS; bx <= x1 >> BITS; bx++) {
+                int xLow = Math.max(x0, bx << BITS), xHigh = Math.min(x1, bx << BITS | MASK);
+                for (int by = y0 >> BITS; by <= y1 >> BITS; by++) {
+                    int yLow = Math.max(y0, by << BITS), yHigh = Math.min(y1, by << BITS | MASK);
+                    int block = blockIndex(xLow, yLow, zLow);
+                    found:
+                    for (int z = zHigh; z >= Math.max(zLow, bestZ); z--) {
+                        for (int x = xLow; x <= xHigh; x++) {
+                            int xz = block | SPREAD_X[x & MASK] | SPREAD_Z[z & MASK];
+                            for (int y = yLow; y <= yHigh; y++) {
+                                if ((mask & (1 << voxels[xz | SPREAD_Y[y & MASK]])) != 0) {
+                                    if (z > bestZ || x < bestX || (x == bestX && y < bestY)) {
+                                        bestX = x;
+                                        bestY = y;
+                                        bestZ = z;
+                                    }
+                                    break found;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            if (bestZ >= 0)
+                return new int[] {bestX, bestY, bestZ};
+        }
+        return null;
+    }
+
+    @Override
+    public long getMemoryUsage() {
+        return voxels.length + 16;
+    }
+}
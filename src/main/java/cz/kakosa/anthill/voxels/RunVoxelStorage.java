@@ -0,0 +1,156 @@
+package cz.kakosa.anthill.voxels;
+
+import cz.kakosa.anthill.Material;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Stores every column as a sorted array of runs of the same material. A typical column is just a stone floor, soil, grass and air
+ * with a few tunnels, so it takes a few ints instead of depth bytes. Voxel lookup is a binary search over the runs.
+ * A run is packed into an int as start &lt;&lt; 8 | id, the first run of a column starts at 0 and neighbouring runs have different materials.
+ * Columns are never changed in place, a write replaces the array of the column. The arrays are published through AtomicReferenceArray,
+ * so the colour rebuild thread always sees a whole column, either the old or the new one.
+ */
+public class RunVoxelStorage extends VoxelStorage {
+
+    /**
+     * Column of air shared by all the columns that were not written yet
+     */
+    private static final int[] AIR_COLUMN = {0};
+
+    private final AtomicReferenceArray<int[]> columns;
+
+    /**
+     * Creates storage filled with air
+     * @param width width of the map
+     * @param height height of the map
+     * @param depth depth of the map, less than 2^23
+     */
+    public RunVoxelStorage(int width, int height, int depth) {
+        super(width, height, depth);
+        columns = new AtomicReferenceArray<>(width * height);
+        for (int c = 0; c < columns.length(); c++)
+            columns.set(c, AIR_COLUMN);
+    }
+
+    /**
+     * Index of the run containing z
+     */
+    private static int find(int[] runs, int z) {
+        int lo = 0, hi = runs.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (runs[mid] >>> 8 <= z)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /**
+     * End (exclusive) of the run at index i
+     */
+    private int end(int[] runs, int i) {
+        return i + 1 < runs.length ? runs[i + 1] >>> 8 : depth;
+    }
+
+    @Override
+    public int getId(int x, int y, int z) {
+        int[] runs = columns.get(x * height + y);
+        return runs[find(runs, z)] & 0xff;
+    }
+
+    @Override
+    public void setId(int x, int y, int z, int id) {
+        replace(x * height + y, z, z + 1, id);
+    }
+
+    @Override
+    public void fillColumn(int x, int y, int zFrom, int zTo, int id, int replaceMask) {
+        int c = x * height + y;
+        if (replaceMask == ANY) {
+            replace(c, zFrom, zTo, id);
+            return;
+        }
+        // replaced pieces are collected first, since every replace changes the runs
+        int[] runs = columns.get(c);
+        int[] pieces = new int[2 * runs.length];
+        int n = 0;
+        for (int i = find(runs, zFrom); i < runs.length && runs[i] >>> 8 < zTo; i++) {
+            if ((replaceMask & (1 << (runs[i] & 0xff))) != 0) {
+                pieces[n++] = Math.max(zFrom, runs[i] >>> 8);
+                pieces[n++] = Math.min(zTo, end(runs, i));
+            }
+        }
+        for (int i = 0; i < n; i += 2)
+            replace(c, pieces[i], pieces[i + 1], id);
+    }
+
+    /**
+     * Replaces span of a column with a single run and merges it with its neighbours if they have the same material
+     */
+    private void replace(int c, int zFrom, int zTo, int id) {
+        if (zFrom >= zTo)
+            return;
+        int[] runs = columns.get(c);
+        int first = find(runs, zFrom), last = find(runs, zTo - 1);
+        if (first == last && (runs[first] & 0xff) == id)
+            return;
+        int[] out = new int[runs.length + 2];
+        int n = 0;
+        for (int i = 0; i < first; i++)
+            out[n++] = runs[i];
+        if (runs[first] >>> 8 < zFrom)
+            out[n++] = runs[first];
+        if (n == 0 || (out[n - 1] & 0xff) != id)
+            out[n++] = zFrom << 8 | id;
+        if (zTo < end(runs, last) && (runs[last] & 0xff) != id)
+            out[n++] = zTo << 8 | (runs[last] & 0xff);
+        for (int i = last + 1; i < runs.length; i++) {
+            if ((runs[i] & 0xff) != (out[n - 1] & 0xff))
+                out[n++] = runs[i];
+        }
+        columns.set(c, Arrays.copyOf(out, n));
+    }
+
+    @Override
+    public int runEnd(int x, int y, int z) {
+        int[] runs = columns.get(x * height + y);
+        return end(runs, find(runs, z));
+    }
+
+    @Override
+    public int firstSolidFrom(int x, int y, int zFrom) {
+        if (zFrom >= depth)
+            return depth;
+        int[] runs = columns.get(x * height + y);
+        for (int i = find(runs, zFrom); i < runs.length; i++) {
+            if (Material.byId(runs[i] & 0xff).isSolid())
+                return Math.max(zFrom, runs[i] >>> 8);
+        }
+        return depth;
+    }
+
+    /**
+     * Returns number of runs of a column
+     * @param x x position of the column
+     * @param y y position of the column
+     * @return number of runs, at least 1
+     */
+    public int getRunCount(int x, int y) {
+        return columns.get(x * height + y).length;
+    }
+
+    @Override
+    public long getMemoryUsage() {
+        long size = columns.length() * 4L + 16;
+        for (int c = 0; c < columns.length(); c++) {
+            int[] runs = columns.get(c);
+            if (runs != AIR_COLUMN)
+                size += runs.length * 4L + 16;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,278 @@
+package cz.kakosa.anthill.voxels;
+
+import cz.kakosa.anthill.Material;
+
+import java.util.Arrays;
+
+/**
+ * Packed bitmap of solid voxels, one bit per voxel. Every column starts at a new long, so a vertical span of a column
+ * can be tested or counted 64 voxels at a time with Long.bitCount.
+ * For every column the bitmap also keeps the highest solid voxel and the lowest non solid voxel, so the surface and the solid underground are known without scanning.
+ */
+public class SolidMap {
+
+    private final int width, height, depth;
+    private final int wordsPerColumn;
+    private final long[] bits;
+
+    /**
+     * Highest solid z of every column (-1 if there is none) and lowest non solid z (depth if there is none), indexed by x * height + y
+     */
+    private final int[] top, lowestAir;
+
+    /**
+     * Creates bitmap with no solid voxels
+     * @param width width of the map
+     * @param height height of the map
+     * @param depth depth of the map
+     */
+    public SolidMap(int width, int height, int depth) {
+        this.width = width;
+        this.height = height;
+        this.depth = depth;
+        wordsPerColumn = (depth + 63) >> 6;
+        bits = new long[width * height * wordsPerColumn];
+        top = new int[width * height];
+        lowestAir = new int[width * height];
+        Arrays.fill(top, -1);
+    }
+
+    /**
+     * Index of the first word of a column
+     */
+    private int column(int x, int y) {
+        return (x * height + y) * wordsPerColumn;
+    }
+
+    /**
+     * Returns true if the voxel is solid. Coordinates have to be inside the map.
+     * @param x x position
+     * @param y y position
+     * @param z z position
+     * @return true if the voxel is solid
+     */
+    public boolean isSolid(int x, int y, int z) {
+        return (bits[column(x, y) + (z >> 6)] & (1L << z)) != 0;
+    }
+
+    /**
+     * Sets solidity of a single voxel
+     * @param x x position
+     * @param y y position
+     * @param z z position
+     * @param solid true if the voxel is solid
+     */
+    public void set(int x, int y, int z, boolean solid) {
+        int i = column(x, y) + (z >> 6);
+        int c = x * height + y;
+        if (solid) {
+            bits[i] |= 1L << z;
+            if (z > top[c])
+                top[c] = z;
+            if (z == lowestAir[c])
+                lowestAir[c] = lowestAirFrom(x, y, z + 1);
+        }
+        else {
+            bits[i] &= ~(1L << z);
+            if (z == top[c])
+                top[c] = highestSolidBelow(x, y, z);
+            if (z < lowestAir[c])
+                lowestAir[c] = z;
+        }
+    }
+
+    /**
+     * Sets solidity of the whole vertical span of a column
+     * @param x x position of the column
+     * @param y y position of the column
+     * @param zFrom lowest z of the span (inclusive)
+     * @param zTo highest z of the span (exclusive)
+     * @param solid true if the voxels are solid
+     */
+    public void fill(int x, int y, int zFrom, int zTo, boolean solid) {
+        int base = column(x, y);
+        for (int z = zFrom; z < zTo; z = (z | 63) + 1) {
+            long mask = spanMask(z, Math.min(zTo, (z | 63) + 1));
+            if (solid)
+                bits[base + (z >> 6)] |= mask;
+            else
+                bits[base + (z >> 6)] &= ~mask;
+        }
+        reindex(x, y, zFrom, zTo);
+    }
+
+    /**
+     * Reads solidity of a column span from the voxels. Used after writes that replace only some of the voxels of a span.
+     * @param voxels storage to read
+     * @param x x position of the column
+     * @param y y position of the column
+     * @param zFrom lowest z of the span (inclusive)
+     * @param zTo highest z of the span (exclusive)
+     */
+    public void update(VoxelStorage voxels, int x, int y, int zFrom, int zTo) {
+        int base = column(x, y);
+        for (int z = zFrom; z < zTo; z++) {
+            if (Material.byId(voxels.getId(x, y, z)).isSolid())
+                bits[base + (z >> 6)] |= 1L << z;
+            else
+                bits[base + (z >> 6)] &= ~(1L << z);
+        }
+        reindex(x, y, zFrom, zTo);
+    }
+
+    /**
+     * Finds the highest solid and the lowest non solid voxel of a column again after a span of it changed.
+     * The top can move only if it was bellow the end of the span, the lowest air only if it wasn't bellow the start of the span.
+     */
+    private void reindex(int x, int y, int zFrom, int zTo) {
+        int c = x * height + y;
+        if (top[c] < zTo)
+            top[c] = highestSolidBelow(x, y, zTo);
+        if (lowestAir[c] >= zFrom)
+            lowestAir[c] = lowestAirFrom(x, y, zFrom);
+    }
+
+    /**
+     * Returns the highest solid voxel of a column without scanning it
+     * @param x x position of the column
+     * @param y y position of the column
+     * @return z of the highest solid voxel or -1 if the column is empty
+     */
+    public int topSolid(int x, int y) {
+        return top[x * height + y];
+    }
+
+    /**
+     * Returns the lowest non solid voxel of a column without scanning it. Everything bellow it is solid.
+     * @param x x position of the column
+     * @param y y position of the column
+     * @return z of the lowest non solid voxel or depth if the column is full
+     */
+    public int lowestAir(int x, int y) {
+        return lowestAir[x * height + y];
+    }
+
+    /**
+     * Reads solidity of all voxels of the storage
+     * @param voxels storage with the same dimensions as the bitmap
+     */
+    public void rebuild(VoxelStorage voxels) {
+        for (int x = 0; x < width; x++)
+            for (int y = 0; y < height; y++)
+                update(voxels, x, y, 0, depth);
+    }
+
+    /**
+     * Counts solid voxels in a vertical span of a column
+     * @param x x position of the column
+     * @param y y position of the column
+     * @param zFrom lowest z of the span (inclusive), at least 0
+     * @param zTo highest z of the span (exclusive), at most depth
+     * @return number of solid voxels in the span
+     */
+    public int countSolid(int x, int y, int zFrom, int zTo) {
+        int base = column(x, y);
+        int count = 0;
+        for (int z = zFrom; z < zTo; z = (z | 63) + 1) {
+            count += Long.bitCount(bits[base + (z >> 6)] & spanMask(z, Math.min(zTo, (z | 63) + 1)));
+        }
+        return count;
+    }
+
+    /**
+     * Counts non solid voxels in a box. Parts of the box outside of the map are not counted.
+     * @param x0 lowest x (inclusive)
+     * @param y0 lowest y (inclusive)
+     * @param z0 lowest z (inclusive)
+     * @param x1 highest x (inclusive)
+     * @param y1 highest y (inclusive)
+     * @param z1 highest z (inclusive)
+     * @return number of non solid voxels inside the box and the map
+     */
+    public int countAir(int x0, int y0, int z0, int x1, int y1, int z1) {
+        x0 = Math.max(x0, 0);
+        y0 = Math.max(y0, 0);
+        z0 = Math.max(z0, 0);
+        x1 = Math.min(x1, width - 1);
+        y1 = Math.min(y1, height - 1);
+        z1 = Math.min(z1, depth - 1);
+        if (x0 > x1 || y0 > y1 || z0 > z1)
+            return 0;
+        int air = 0;
+        for (int x = x0; x <= x1; x++)
+            for (int y = y0; y <= y1; y++)
+                air += z1 - z0 + 1 - countSolid(x, y, z0, z1 + 1);
+        return air;
+    }
+
+    /**
+     * Finds the highest solid voxel below given z
+     * @param x x position of the column
+     * @param y y position of the column
+     * @param z z above the searched span (exclusive)
+     * @return z of the highest solid voxel under z or -1 if there is none
+     */
+    public int highestSolidBelow(int x, int y, int z) {
+        return highestBelow(x, y, z, 0);
+    }
+
+    /**
+     * Finds the highest non solid voxel below given z
+     * @param x x position of the column
+     * @param y y position of the column
+     * @param z z above the searched span (exclusive)
+     * @return z of the highest non solid voxel under z or -1 if there is none
+     */
+    public int highestAirBelow(int x, int y, int z) {
+        return highestBelow(x, y, z, -1L);
+    }
+
+    /**
+     * Finds the lowest non solid voxel from given z up
+     * @param x x position of the column
+     * @param y y position of the column
+     * @param z lowest z of the searched span (inclusive)
+     * @return z of the lowest non solid voxel at or above z or depth if there is none
+     */
+    public int lowestAirFrom(int x, int y, int z) {
+        int base = column(x, y);
+        while (z < depth) {
+            long word = ~bits[base + (z >> 6)] & spanMask(z, Math.min(depth, (z | 63) + 1));
+            if (word != 0)
+                return (z & ~63) + Long.numberOfTrailingZeros(word);
+            z = (z | 63) + 1;
+        }
+        return depth;
+    }
+
+    /**
+     * Scans column downwards a word at a time
+     * @param flip 0 to search for solid voxels, -1 to search for non solid voxels
+     */
+    private int highestBelow(int x, int y, int z, long flip) {
+        int base = column(x, y);
+        z--;
+        while (z >= 0) {
+            long word = (bits[base + (z >> 6)] ^ flip) & spanMask(0, z + 1);
+            if (word != 0)
+                return (z & ~63) + 63 - Long.numberOfLeadingZeros(word);
+            z = (z & ~63) - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Mask of bits from zFrom to zTo (exclusive) inside a single word
+     */
+    private static long spanMask(int zFrom, int zTo) {
+        long upper = (zTo & 63) == 0 ? -1L : (1L << zTo) - 1;
+        return upper & (-1L << zFrom);
+    }
+
+    /**
+     * @return size of the bitmap in bytes
+     */
+    public long getMemoryUsage() {
+        return bits.length * 8L + (top.length + lowestAir.length) * 4L + 48;
+    }
+}
@@ -0,0 +1,100 @@
+package cz.kakosa.anthill.voxels;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shape of a (possibly scaled) sphere as a vertical span for every column of its bounding box. The sphere can then be filled
+ * a column span at a time instead of testing every voxel of the box.
+ * A voxel at offset (dx, dy, dz) from the center is inside if dx^2 * scaleX + dy^2 * scaleY + dz^2 * scaleZ &lt; rad^2,
+ * evaluated in doubles exactly like the voxel by voxel test, and dx, dy and dz are from -rad (inclusive) to rad (exclusive).
+ * Stencils are cached since ants dig with the same few spheres all the time and generation fills every stone tile by tile.
+ */
+public final class SphereStencil {
+
+    private static final int MAX_CACHED_RADIUS = 64, MAX_CACHED_STENCILS = 1024;
+
+    private static final ConcurrentHashMap<Key, SphereStencil> CACHE = new ConcurrentHashMap<>();
+
+    private final int rad;
+
+    /**
+     * Highest |dz| inside the sphere for each column, -1 if the column misses the sphere. Indexed by (dx + rad) * 2 * rad + dy + rad.
+     */
+    private final int[] halfDepth;
+
+    private SphereStencil(int rad, float scaleX, float scaleY, float scaleZ) {
+        this.rad = rad;
+        halfDepth = new int[4 * rad * rad];
+        // squares of ints are exact in doubles, so these are the same values Math.pow(d, 2) gives
+        double rad2 = (double) rad * rad;
+        int i = 0;
+        for (int dx = -rad; dx < rad; dx++) {
+            for (int dy = -rad; dy < rad; dy++) {
+                double xy = (double) (dx * dx) * scaleX + (double) (dy * dy) * scaleY;
+                // estimate, then correct it with the exact test (the test is monotonic in |dz|)
+                int h = (int) Math.min(rad, Math.sqrt(Math.max(0, (rad2 - xy) / scaleZ)));
+                while (h < rad && xy + (double) ((h + 1) * (h + 1)) * scaleZ < rad2)
+                    h++;
+                while (h >= 0 && ! (xy + (double) (h * h) * scaleZ < rad2))
+                    h--;
+                halfDepth[i++] = h;
+            }
+        }
+    }
+
+    /**
+     * Returns stencil of a sphere, cached one if the sphere isn't too big and the cache isn't full
+     * @param rad radius of the sphere, at least 0
+     * @param scaleX x scale
+     * @param scaleY y scale
+     * @param scaleZ z scale
+     * @return stencil of the sphere
+     */
+    public static SphereStencil get(int rad, float scaleX, float scaleY, float scaleZ) {
+        Key key = new Key(rad, scaleX, scaleY, scaleZ);
+        SphereStencil stencil = CACHE.get(key);
+        if (stencil != null)
+            return stencil;
+        if (rad > MAX_CACHED_RADIUS || CACHE.size() >= MAX_CACHED_STENCILS)
+            return new SphereStencil(rad, scaleX, scaleY, scaleZ);
+        return CACHE.computeIfAbsent(key, k -> new SphereStencil(rad, scaleX, scaleY, scaleZ));
+    }
+
+    /**
+     * Returns how far up and down from the center the sphere reaches in a column
+     * @param dx x offset of the column from the center, from -rad (inclusive) to rad (exclusive)
+     * @param dy y offset of the column from the center, from -rad (inclusive) to rad (exclusive)
+     * @return highest |dz| inside the sphere (dz = rad is never inside) or -1 if the column misses the sphere
+     */
+    public int halfDepth(int dx, int dy) {
+        return halfDepth[(dx + rad) * 2 * rad + dy + rad];
+    }
+
+    /**
+     * Radius and scales of a cached stencil
+     */
+    private static final class Key {
+        private final int rad;
+        private final float scaleX, scaleY, scaleZ;
+
+        private Key(int rad, float scaleX, float scaleY, float scaleZ) {
+            this.rad = rad;
+            this.scaleX = scaleX;
+            this.scaleY = scaleY;
+            this.scaleZ = scaleZ;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (! (o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return rad == k.rad && Float.compare(scaleX, k.scaleX) == 0 && Float.compare(scaleY, k.scaleY) == 0 && Float.compare(scaleZ, k.scaleZ) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((rad * 31 + Float.floatToIntBits(scaleX)) * 31 + Float.floatToIntBits(scaleY)) * 31 + Float.floatToIntBits(scaleZ);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package cz.kakosa.anthill.voxels;
+
+/**
+ * Available layouts of the voxel storage. Selected at startup with "storage=" argument.
+ */
+public enum StorageMode {
+    /** Three dimensional array of Material references (original layout) */
+    ARRAY,
+    /** Single flat byte array of material ids */
+    BYTE,
+    /** Chunks of 16x16x16 voxels, uniform chunks take a single byte */
+    CHUNKED,
+    /** Columns as sorted runs of the same material */
+    RLE,
+    /** Blocks of 8x8x8 voxels with voxels of a block in Morton (Z-curve) order, so that small boxes touch few cache lines */
+    MORTON;
+
+    /**
+     * Creates empty storage (filled with air) of this mode
+     * @param width width of the map
+     * @param height height of the map
+     * @param depth depth of the map
+     * @return new VoxelStorage
+     */
+    public VoxelStorage create(int width, int height, int depth) {
+        return create(width, height, depth, ChunkedVoxelStorage.IDLE_TICKS, ChunkedVoxelStorage.CHECKED_PER_TICK);
+    }
+
+    /**
+     * Creates empty storage (filled with air) of this mode
+     * @param width width of the map
+     * @param height height of the map
+     * @param depth depth of the map
+     * @param packIdleTicks number of ticks without a write after which a chunk of CHUNKED storage is packed
+     * @param packChunksPerTick number of chunks of CHUNKED storage checked for packing every tick
+     * @return new VoxelStorage
+     */
+    public VoxelStorage create(int width, int height, int depth, int packIdleTicks, int packChunksPerTick) {
+        switch (this) {
+            case ARRAY:
+                return new ArrayVoxelStorage(width, height, depth);
+            case CHUNKED:
+                return new ChunkedVoxelStorage(width, height, depth, packIdleTicks, packChunksPerTick);
+            case MORTON:
+                return new MortonVoxelStorage(width, height, depth);
+            case RLE:
+                return new RunVoxelStorage(width, height, depth);
+            case BYTE:
+            default:
+                return new ByteVoxelStorage(width, height, depth);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package cz.kakosa.anthill.voxels;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Colour map that doesn't store colours of the whole map. Colours are computed only for tiles of 32x32 columns of the layers the camera asks for
+ * and the tiles are kept in a cache that forgets the least recently used ones when it grows over its memory bound.
+ * A change of a column makes all cached tiles of that column outdated, they are recomputed when asked for again.
+ */
+public class TileColorCache extends ColorMap {
+
+    static final int TILE_BITS = 5;
+    static final int TILE = 1 << TILE_BITS;
+    static final int TILE_MASK = TILE - 1;
+
+    /**
+     * Computes colour codes of a tile, usually Terrain.
+     */
+    public interface TileColorer {
+        /**
+         * Computes colour codes of a rectangle of one layer
+         * @param x0 x of the top left corner
+         * @param y0 y of the top left corner
+         * @param z layer
+         * @param w width of the rectangle
+         * @param h height of the rectangle
+         * @param dest array of at least w * h codes stored row by row
+         */
+        void colorTile(int x0, int y0, int z, int w, int h, short[] dest);
+    }
+
+    private final TileColorer colorer;
+    private final int tilesX, tilesY;
+
+    /**
+     * Version of every column of tiles. Incremented when something in the columns changes. Cached tile keeps the version it was computed for.
+     */
+    private final int[] versions;
+
+    private final LinkedHashMap<Long, Tile> tiles;
+
+    /**
+     * Colour codes of a cached tile and the version of its column of tiles they were computed for
+     */
+    private static final class Tile {
+        private final short[] codes = new short[TILE * TILE];
+        private int version;
+    }
+
+    /**
+     * Creates empty cache
+     * @param width width of the map
+     * @param height height of the map
+     * @param depth depth of the map
+     * @param colorer computes colours of the tiles
+     * @param maxBytes memory bound of the cache
+     */
+    public TileColorCache(int width, int height, int depth, TileColorer colorer, long maxBytes) {
+        super(width, height, depth);
+        this.colorer = colorer;
+        tilesX = (width + TILE_MASK) >> TILE_BITS;
+        tilesY = (height + TILE_MASK) >> TILE_BITS;
+        versions = new int[tilesX * tilesY];
+        final long maxTiles = Math.max(1, maxBytes / (TILE * TILE * 2 + 96));
+        tiles = new LinkedHashMap<Long, Tile>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Tile> eldest) {
+                return size() > maxTiles;
+            }
+        };
+    }
+
+    /**
+     * Returns up to date tile, computes it if it is not cached or is outdated
+     */
+    private short[] tile(int tx, int ty, int z) {
+        long key = ((long) z << 42) | ((long) tx << 21) | ty;
+        int version = versions[tx * tilesY + ty];
+        Tile tile = tiles.get(key);
+        if (tile == null || tile.version != version) {
+            if (tile == null) {
+                tile = new Tile();
+                tiles.put(key, tile);
+            }
+            int x0 = tx << TILE_BITS, y0 = ty << TILE_BITS;
+            colorer.colorTile(x0, y0, z, Math.min(TILE, width - x0), Math.min(TILE, height - y0), tile.codes);
+            tile.version = version;
+        }
+        return tile.codes;
+    }
+
+    @Override
+    public int get(int x, int y, int z) {
+        return tile(x >> TILE_BITS, y >> TILE_BITS, z)[(y & TILE_MASK) * Math.min(TILE, width - (x & ~TILE_MASK)) + (x & TILE_MASK)];
+    }
+
+    @Override
+    public void getRow(int z, int y, int x, int length, int[] dest, int offset) {
+        int ty = y >> TILE_BITS;
+        while (length > 0) {
+            int tx = x >> TILE_BITS;
+            int x0 = tx << TILE_BITS;
+            int w = Math.min(TILE, width - x0);
+            int count = Math.min(length, x0 + w - x);
+            short[] codes = tile(tx, ty, z);
+            int start = (y & TILE_MASK) * w + (x - x0);
+            for (int i = 0; i < count; i++)
+                dest[offset + i] = codes[start + i];
+            x += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Codes are computed, not stored. Setting a code only marks its column as changed.
+     */
+    @Override
+    public void set(int x, int y, int z, int code) {
+        invalidate(x, y);
+    }
+
+    @Override
+    public void invalidate(int x, int y) {
+        versions[(x >> TILE_BITS) * tilesY + (y >> TILE_BITS)]++;
+    }
+
+    @Override
+    public boolean isPrecomputed() {
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        tiles.clear();
+    }
+}
@@ -0,0 +1,69 @@
+package cz.kakosa.anthill.voxels;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join job over a rectangle of (x, y) columns. The rectangle is split in halves along tile borders until the parts are single tiles,
+ * the tiles are then processed in parallel. Tiles must not share anything they write to.
+ */
+public class TileTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Work done on one tile
+     */
+    public interface TileJob {
+        /**
+         * Processes all the columns of a tile
+         * @param x0 lowest x (inclusive)
+         * @param y0 lowest y (inclusive)
+         * @param x1 highest x (exclusive)
+         * @param y1 highest y (exclusive)
+         */
+        void run(int x0, int y0, int x1, int y1);
+    }
+
+    private final TileJob job;
+    private final int tile;
+    private final int x0, y0, x1, y1;
+
+    private TileTask(TileJob job, int tile, int x0, int y0, int x1, int y1) {
+        this.job = job;
+        this.tile = tile;
+        this.x0 = x0;
+        this.y0 = y0;
+        this.x1 = x1;
+        this.y1 = y1;
+    }
+
+    /**
+     * Runs the job on all tiles of the rectangle in the common pool and waits for it to finish
+     * @param width width of the rectangle starting at 0
+     * @param height height of the rectangle starting at 0
+     * @param tile size of the tiles, tile borders are at multiples of the size
+     * @param job work done on each tile
+     */
+    public static void run(int width, int height, int tile, TileJob job) {
+        ForkJoinPool.commonPool().invoke(new TileTask(job, tile, 0, 0, width, height));
+    }
+
+    @Override
+    protected void compute() {
+        int tilesX = (x1 - x0 + tile - 1) / tile;
+        int tilesY = (y1 - y0 + tile - 1) / tile;
+        if (tilesX <= 1 && tilesY <= 1) {
+            if (x0 < x1 && y0 < y1)
+                job.run(x0, y0, x1, y1);
+        }
+        else if (tilesX >= tilesY) {
+            int split = x0 + tilesX / 2 * tile;
+            invokeAll(new TileTask(job, tile, x0, y0, split, y1), new TileTask(job, tile, split, y0, x1, y1));
+        }
+        else {
+            int split = y0 + tilesY / 2 * tile;
+            invokeAll(new TileTask(job, tile, x0, y0, x1, split), new TileTask(job, tile, x0, split, x1, y1));
+        }
+    }
+}
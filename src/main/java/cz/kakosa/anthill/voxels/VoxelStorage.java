@@ -0,0 +1,186 @@
+package cz.kakosa.anthill.voxels;
+
+import cz.kakosa.anthill.Material;
+
+/**
+ * Voxel storage keeps Material of each voxel of the map. Terrain accesses voxels only through this class, so the memory layout can be changed without touching the generation or the ants.
+ * Materials are stored as their ids (see Material.getId()). AIR has id 0, so a new storage is filled with air.
+ */
+public abstract class VoxelStorage {
+
+    /**
+     * Mask accepting every material. Used when filling a span should replace anything.
+     */
+    public static final int ANY = -1;
+
+    protected final int width, height, depth;
+
+    /**
+     * Sets dimensions of the stored map
+     * @param width width of the map
+     * @param height height of the map
+     * @param depth depth of the map
+     */
+    protected VoxelStorage(int width, int height, int depth) {
+        this.width = width;
+        this.height = height;
+        this.depth = depth;
+    }
+
+    /**
+     * Returns id of the material at given coordinates. Coordinates have to be inside the map.
+     * @param x x position
+     * @param y y position
+     * @param z z position
+     * @return id of the Material lying at the coordinates
+     */
+    public abstract int getId(int x, int y, int z);
+
+    /**
+     * Sets id of the material at given coordinates. Coordinates have to be inside the map.
+     * @param x x position
+     * @param y y position
+     * @param z z position
+     * @param id id of the Material to store
+     */
+    public abstract void setId(int x, int y, int z, int id);
+
+    /**
+     * Return voxel Material at given position
+     * @param x x position
+     * @param y y position
+     * @param z z position
+     * @return Material that lies at the coordinates
+     */
+    public Material get(int x, int y, int z) {
+        return Material.byId(getId(x, y, z));
+    }
+
+    /**
+     * Sets voxel Material at given position
+     * @param x x position
+     * @param y y position
+     * @param z z position
+     * @param m Material with which to set the voxel
+     */
+    public void set(int x, int y, int z, Material m) {
+        setId(x, y, z, m.getId());
+    }
+
+    /**
+     * Fills vertical span of a column with a material. Only voxels which material is in replaceMask are overwritten.
+     * Storages override this when they can fill the whole span at once.
+     * @param x x position of the column
+     * @param y y position of the column
+     * @param zFrom lowest z of the span (inclusive)
+     * @param zTo highest z of the span (exclusive)
+     * @param id id of the material to fill the span with
+     * @param replaceMask mask of materials (see Material.getMask()) that may be replaced, ANY to replace everything
+     */
+    public void fillColumn(int x, int y, int zFrom, int zTo, int id, int replaceMask) {
+        for (int z = zFrom; z < zTo; z++) {
+            if ((replaceMask & (1 << getId(x, y, z))) != 0)
+                setId(x, y, z, id);
+        }
+    }
+
+    /**
+     * Returns lowest z above zFrom (inclusive) at which the column holds a solid material
+     * @param x x position of the column
+     * @param y y position of the column
+     * @param zFrom z where to start searching
+     * @return z of the first solid voxel or depth if there is none
+     */
+    public int firstSolidFrom(int x, int y, int zFrom) {
+        int z = zFrom;
+        while (z < depth && ! Material.byId(getId(x, y, z)).isSolid())
+            z++;
+        return z;
+    }
+
+    /**
+     * Returns end of the run of the same material the voxel at z belongs to. Colours are computed run by run using this.
+     * Storages override this when they know the runs without scanning the column.
+     * @param x x position of the column
+     * @param y y position of the column
+     * @param z z inside the run
+     * @return lowest z above z with a different material or depth if there is none
+     */
+    public int runEnd(int x, int y, int z) {
+        int id = getId(x, y, z);
+        z++;
+        while (z < depth && getId(x, y, z) == id)
+            z++;
+        return z;
+    }
+
+    /**
+     * Finds a voxel of given materials in a box. Parts of the box outside of the map are skipped.
+     * If there are more such voxels, the highest one is returned, of those the one with the lowest x and then the lowest y.
+     * Storages override this when they can go through the box in the order of their memory.
+     * @param x0 lowest x (inclusive)
+     * @param y0 lowest y (inclusive)
+     * @param z0 lowest z (inclusive)
+     * @param x1 highest x (inclusive)
+     * @param y1 highest y (inclusive)
+     * @param z1 highest z (inclusive)
+     * @param mask mask of searched materials (see Material.getMask())
+     * @return int[3] coordinates of the found voxel or null if there is none
+     */
+    public int[] findInBox(int x0, int y0, int z0, int x1, int y1, int z1, int mask) {
+        x0 = Math.max(x0, 0);
+        y0 = Math.max(y0, 0);
+        z0 = Math.max(z0, 0);
+        x1 = Math.min(x1, width - 1);
+        y1 = Math.min(y1, height - 1);
+        z1 = Math.min(z1, depth - 1);
+        for (int z = z1; z >= z0; z--) {
+            for (int x = x0; x <= x1; x++) {
+                for (int y = y0; y <= y1; y++) {
+                    if ((mask & (1 << getId(x, y, z))) != 0)
+                        return new int[] {x, y, z};
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Called after a big batch of writes (like the map generation). Storages may use it to shrink themselves.
+     */
+    public void compact() {
+    }
+
+    /**
+     * Called after every tick of the simulation. Storages may use it to compress parts of the map that are not written anymore.
+     */
+    public void tick() {
+    }
+
+    /**
+     * Approximate number of bytes the storage occupies on the Java heap
+     * @return size in bytes
+     */
+    public abstract long getMemoryUsage();
+
+    /**
+     * @return width of the stored map
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return height of the stored map
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return depth of the stored map
+     */
+    public int getDepth() {
+        return depth;
+    }
+}
@@ -0,0 +1,214 @@
+package cz.kakosa.anthill.voxels;
+
+import cz.kakosa.anthill.Material;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saved map in a compact binary file. Unlike MappedWorld, the file is read once at start and the map then lives in any voxel storage.
+ * The file has a header (magic, version, width, height, depth, flags, visual depth of the colours, which are stored without x-ray),
+ * then voxels of every column (x major, then y) as runs of the same material along z, each run being a material id byte and an unsigned short length.
+ * If the colours flag is set, the colour map follows as rows of short colour codes (see ColorPalette), layer by layer.
+ */
+public class WorldFile implements Closeable {
+
+    private static final int MAGIC = 0x414e5457; // "ANTW"
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 28;
+    private static final int COLORS = 1;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MATERIALS = Material.values().length;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final int width, height, depth;
+    private final int flags, visDepth;
+
+    /**
+     * Opens saved map and reads its header
+     * @param file path to the file
+     * @return opened file, voxels are read by readVoxels
+     * @throws IOException if the file can't be read or isn't a saved map
+     */
+    public static WorldFile open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new WorldFile(channel, file);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private WorldFile(FileChannel channel, Path file) throws IOException {
+        this.channel = channel;
+        buffer.limit(0);
+        require(HEADER_SIZE);
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+            throw new IOException(file + " is not a saved map");
+        width = buffer.getInt();
+        height = buffer.getInt();
+        depth = buffer.getInt();
+        flags = buffer.getInt();
+        visDepth = buffer.getInt();
+    }
+
+    /**
+     * Makes sure at least n bytes are in the buffer, reads more from the channel if needed
+     */
+    private void require(int n) throws IOException {
+        if (buffer.remaining() >= n)
+            return;
+        buffer.compact();
+        while (buffer.position() < n) {
+            if (channel.read(buffer) < 0)
+                throw new EOFException("Saved map ends unexpectedly");
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Reads all the voxels. Each run is written with a single fillColumn into the storage and the solid bitmap.
+     * @param voxels storage with the dimensions of the file
+     * @param solid bitmap with the dimensions of the file
+     * @throws IOException if the file can't be read or is damaged
+     */
+    public void readVoxels(VoxelStorage voxels, SolidMap solid) throws IOException {
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                for (int z = 0; z < depth; ) {
+                    require(3);
+                    int id = buffer.get();
+                    int length = buffer.getShort() & 0xffff;
+                    if (id < 0 || id >= MATERIALS || length == 0 || z + length > depth)
+                        throw new IOException("Damaged run of column " + x + ", " + y);
+                    voxels.fillColumn(x, y, z, z + length, id, VoxelStorage.ANY);
+                    solid.fill(x, y, z, z + length, Material.byId(id).isSolid());
+                    z += length;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the colour map, has to be called after readVoxels
+     * @param colors colour map with the dimensions of the file
+     * @throws IOException if the file can't be read or has no colours
+     */
+    public void readColors(ColorMap colors) throws IOException {
+        if ((flags & COLORS) == 0)
+            throw new IOException("Saved map has no colours");
+        int[] row = new int[width];
+        for (int z = 0; z < depth; z++) {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; ) {
+                    int length = Math.min(width - x, BUFFER_SIZE / 2);
+                    require(length * 2);
+                    for (int i = 0; i < length; i++)
+                        row[x + i] = buffer.getShort();
+                    x += length;
+                }
+                colors.setRow(z, y, 0, width, row, 0);
+            }
+        }
+    }
+
+    /**
+     * Saves map into a file
+     * @param file path to the file, existing file is overwritten
+     * @param voxels voxels to save
+     * @param colors colour map to save or null to save only the voxels
+     * @param visDepth visual depth the colours were computed for
+     * @throws IOException if the file can't be written
+     */
+    public static void save(Path file, VoxelStorage voxels, ColorMap colors, int visDepth) throws IOException {
+        int width = voxels.getWidth(), height = voxels.getHeight(), depth = voxels.getDepth();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(depth)
+                    .putInt(colors != null ? COLORS : 0).putInt(visDepth);
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) {
+                    int z = 0;
+                    while (z < depth) {
+                        int id = voxels.getId(x, y, z);
+                        int end = z + 1;
+                        while (end < depth && end - z < 0xffff && voxels.getId(x, y, end) == id)
+                            end++;
+                        if (buffer.remaining() < 3)
+                            drain(channel, buffer);
+                        buffer.put((byte) id).putShort((short) (end - z));
+                        z = end;
+                    }
+                }
+            }
+            if (colors != null) {
+                int[] row = new int[width];
+                for (int z = 0; z < depth; z++) {
+                    for (int y = 0; y < height; y++) {
+                        colors.getRow(z, y, 0, width, row, 0);
+                        for (int x = 0; x < width; ) {
+                            if (buffer.remaining() < 2)
+                                drain(channel, buffer);
+                            int length = Math.min(width - x, buffer.remaining() / 2);
+                            for (int i = 0; i < length; i++)
+                                buffer.putShort((short) row[x + i]);
+                            x += length;
+                        }
+                    }
+                }
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    /**
+     * Writes everything in the buffer to the channel and clears the buffer
+     */
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * @param visDepth current visual depth
+     * @return true if the file holds colours computed without x-ray for the given visual depth
+     */
+    public boolean hasColors(int visDepth) {
+        return (flags & COLORS) != 0 && this.visDepth == visDepth;
+    }
+
+    /**
+     * @return width of the saved map
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return height of the saved map
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return depth of the saved map
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
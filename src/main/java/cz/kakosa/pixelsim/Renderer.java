@@ -44,6 +44,29 @@ public class Renderer {
         pixels[x + y * pW] = value;
     }
 
+    /**
+     * Copies a row of pixels into the viewport at once. Unlike setPixel, no colour is treated as transparent.
+     * @param x X position of the first pixel
+     * @param y Y position of the row
+     * @param src colours of the pixels (In format 0xff######)
+     * @param offset index of the first pixel in src
+     * @param length number of pixels
+     */
+    public void setPixels(int x, int y, int[] src, int offset, int length){
+        if (y < 0 || y >= pH){
+            return;
+        }
+        if (x < 0){
+            offset -= x;
+            length += x;
+            x = 0;
+        }
+        length = Math.min(length, pW - x);
+        if (length > 0){
+            System.arraycopy(src, offset, pixels, x + y * pW, length);
+        }
+    }
+
     /**
      * Types text over the viewport
      * @param text String to write. Should be non null
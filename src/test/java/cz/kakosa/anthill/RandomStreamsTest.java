@@ -0,0 +1,46 @@
+package cz.kakosa.anthill;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class RandomStreamsTest {
+
+    @Test
+    public void sameSeedStreamAndIndexGiveTheSameSequence() {
+        Random a = RandomStreams.get(42, RandomStreams.TREES, 7);
+        Random b = RandomStreams.get(42, RandomStreams.TREES, 7);
+        for (int i = 0; i < 100; i++)
+            assertEquals(a.nextLong(), b.nextLong());
+    }
+
+    @Test
+    public void nearSeedsStreamsAndIndexesGiveDifferentSequences() {
+        Set<Long> first = new HashSet<>();
+        int count = 0;
+        for (long seed = 0; seed < 10; seed++) {
+            for (int stream = RandomStreams.VALLEYS; stream <= RandomStreams.ANTS; stream++) {
+                for (int index = 0; index < 10; index++) {
+                    first.add(RandomStreams.get(seed, stream, index).nextLong());
+                    count++;
+                }
+            }
+        }
+        assertEquals(count, first.size());
+    }
+
+    @Test
+    public void reseededRandomContinuesLikeANewOne() {
+        Random reused = new Random();
+        for (int index = 0; index < 5; index++) {
+            reused.setSeed(RandomStreams.seedOf(42, RandomStreams.ANTS, index));
+            Random fresh = RandomStreams.get(42, RandomStreams.ANTS, index);
+            for (int i = 0; i < 20; i++)
+                assertEquals(fresh.nextInt(1000), reused.nextInt(1000));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package cz.kakosa.anthill.ants;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks searches of the grid against a scan of all ants while ants are added, moved and removed
+ */
+public class AntGridTest {
+
+    private static final int WIDTH = 45, HEIGHT = 30, DEPTH = 20, ANTS = 150;
+
+    @Test
+    public void searchesFindTheSameAntsAsAScan() {
+        AntStore store = new AntStore(8);
+        AntGrid grid = new AntGrid(store, WIDTH, HEIGHT, DEPTH);
+        boolean[] alive = new boolean[ANTS];
+        Random r = new Random(1);
+        for (int id = 0; id < ANTS; id++) {
+            store.reset(id, AntStore.EXPLORER, r.nextInt(WIDTH), r.nextInt(HEIGHT), r.nextInt(DEPTH));
+            grid.add(id, store.x[id], store.y[id], store.z[id]);
+            alive[id] = true;
+        }
+        for (int round = 0; round < 200; round++) {
+            for (int i = 0; i < 20; i++) {
+                int id = r.nextInt(ANTS);
+                if (! alive[id]) {
+                    store.reset(id, AntStore.EXPLORER, r.nextInt(WIDTH), r.nextInt(HEIGHT), r.nextInt(DEPTH));
+                    grid.add(id, store.x[id], store.y[id], store.z[id]);
+                    alive[id] = true;
+                }
+                else if (r.nextInt(4) == 0) {
+                    grid.remove(id);
+                    alive[id] = false;
+                }
+                else {
+                    store.x[id] = clamp(store.x[id] + r.nextInt(5) - 2, WIDTH);
+                    store.y[id] = clamp(store.y[id] + r.nextInt(5) - 2, HEIGHT);
+                    store.z[id] = clamp(store.z[id] + r.nextInt(5) - 2, DEPTH);
+                    grid.move(id, store.x[id], store.y[id], store.z[id]);
+                }
+            }
+            int x = r.nextInt(WIDTH), y = r.nextInt(HEIGHT), z = r.nextInt(DEPTH), radius = r.nextInt(12);
+            List<Integer> expected = new ArrayList<>();
+            for (int id = 0; id < ANTS; id++) {
+                if (alive[id] && Math.abs(store.x[id] - x) <= radius && Math.abs(store.y[id] - y) <= radius && Math.abs(store.z[id] - z) <= radius)
+                    expected.add(id);
+            }
+            List<Integer> found = new ArrayList<>();
+            grid.forEachWithin(x, y, z, radius, found::add);
+            Collections.sort(found);
+            assertEquals(expected, found);
+        }
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(value, size - 1));
+    }
+}
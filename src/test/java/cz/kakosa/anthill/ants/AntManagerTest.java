@@ -0,0 +1,120 @@
+package cz.kakosa.anthill.ants;
+
+import cz.kakosa.anthill.Settings;
+import cz.kakosa.anthill.SimManager;
+import cz.kakosa.anthill.Terrain;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AntManagerTest {
+
+    private static final int SIZE = 128;
+
+    private Terrain terrain;
+    private AntManager manager;
+
+    @Before
+    public void createColony() {
+        Settings settings = Settings.parse(new String[] {"seed=1", "size=" + SIZE + "x" + SIZE, "colors=tiles"});
+        SimManager sm = new SimManager(SimManager.WIDTH, SimManager.HEIGHT, SimManager.INFOBAR_WIDTH, settings);
+        terrain = new Terrain(sm, SIZE, SIZE, settings);
+        manager = new AntManager(terrain, new Random(1));
+        // eggs don't act for hundreds of updates, so without the queen the test alone adds and removes ants
+        manager.removeAnt(0);
+    }
+
+    @After
+    public void closeTerrain() {
+        terrain.close();
+    }
+
+    @Test
+    public void removedAntsAreReplacedAndTheirIdsReused() {
+        int[] eggs = new int[5];
+        for (int i = 0; i < eggs.length; i++) {
+            eggs[i] = egg(i);
+            assertEquals(i + 1, eggs[i]);
+            assertFalse(manager.isAlive(eggs[i]));
+        }
+        manager.manageAnts();
+        assertEquals(eggs.length, manager.getNumofAnts());
+        assertFalse(manager.isAlive(0));
+        for (int id : eggs)
+            assertTrue(manager.getBehaviour(id) instanceof AntEgg);
+
+        int generation = manager.getGeneration(eggs[4]);
+        manager.removeAnt(eggs[1]);
+        manager.removeAnt(eggs[1]);
+        manager.removeAnt(eggs[4]);
+        manager.manageAnts();
+        assertEquals(3, manager.getNumofAnts());
+        assertTrue(manager.isAlive(1) && manager.isAlive(3) && manager.isAlive(4));
+        assertFalse(manager.isAlive(2) || manager.isAlive(5));
+
+        // freed ids are given out last freed first, with a new generation
+        assertEquals(5, egg(5));
+        assertEquals(2, egg(6));
+        manager.manageAnts();
+        assertEquals(5, manager.getNumofAnts());
+        assertTrue(manager.isAlive(5) && manager.isAlive(2));
+        assertFalse(manager.isAlive(5, generation));
+        assertTrue(manager.isAlive(5, generation + 1));
+        assertEquals(generation + 1, manager.getGeneration(5));
+    }
+
+    @Test
+    public void tiledTicksDontDependOnThreadCount() {
+        assertEquals(colony(1), colony(3));
+    }
+
+    @Test
+    public void manyAntsGrowTheArrays() {
+        int[] eggs = new int[200];
+        for (int i = 0; i < eggs.length; i++)
+            eggs[i] = egg(i);
+        manager.manageAnts();
+        for (int i = 0; i < eggs.length; i += 2)
+            manager.removeAnt(eggs[i]);
+        manager.manageAnts();
+        assertEquals(eggs.length / 2, manager.getNumofAnts());
+        for (int i = 0; i < eggs.length; i++)
+            assertEquals(i % 2 == 1, manager.isAlive(eggs[i]));
+    }
+
+    /**
+     * Grows a colony on a new map with ants ticked in parallel tiles
+     * @param threads number of threads ticking the tiles
+     * @return hash of the voxels of the map and number of the ants
+     */
+    private String colony(int threads) {
+        Settings settings = Settings.parse(new String[] {"seed=2", "size=" + SIZE + "x" + SIZE, "colors=tiles"});
+        SimManager sm = new SimManager(SimManager.WIDTH, SimManager.HEIGHT, SimManager.INFOBAR_WIDTH, settings);
+        try (Terrain t = new Terrain(sm, SIZE, SIZE, settings);
+             AntManager colony = new AntManager(t, new Random(2), threads)) {
+            for (int i = 0; i < 1500; i++)
+                colony.manageAnts();
+            long hash = 0;
+            for (int x = 0; x < SIZE; x++) {
+                for (int y = 0; y < SIZE; y++) {
+                    for (int z = 0; z < t.getDepth(); z++)
+                        hash = hash * 31 + t.getVoxelAt(x, y, z).getId();
+                }
+            }
+            return hash + " with " + colony.getNumofAnts() + " ants";
+        }
+    }
+
+    /**
+     * Adds egg in the top layer of the map, every index at another column
+     */
+    private int egg(int index) {
+        return manager.addAnt(AntStore.EGG, 10 + index % 100, 10 + index / 100, terrain.getDepth() - 1);
+    }
+}
@@ -0,0 +1,63 @@
+package cz.kakosa.anthill.ants;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the hash table against a HashMap. Keys come from a small box, so probes collide and removals have clusters to shift back.
+ */
+public class AntPositionMapTest {
+
+    @Test
+    public void randomPutsAndRemovesMatchHashMap() {
+        AntPositionMap map = new AntPositionMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random r = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            long key = AntStore.pack(r.nextInt(8), r.nextInt(8), r.nextInt(8));
+            if (r.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            }
+            else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+            if (i % 1000 == 0)
+                assertMapped(expected, map);
+        }
+        assertMapped(expected, map);
+    }
+
+    @Test
+    public void removingEveryKeyEmptiesTheMap() {
+        AntPositionMap map = new AntPositionMap(8);
+        for (int x = 0; x < 50; x++)
+            map.put(AntStore.pack(x, 1, 2), x);
+        for (int x = 0; x < 50; x += 3)
+            map.remove(AntStore.pack(x, 1, 2));
+        for (int x = 0; x < 50; x++)
+            assertEquals(x % 3 == 0 ? AntStore.NO_ANT : x, map.get(AntStore.pack(x, 1, 2)));
+        for (int x = 0; x < 50; x++)
+            map.remove(AntStore.pack(x, 1, 2));
+        for (int x = 0; x < 50; x++)
+            assertEquals(AntStore.NO_ANT, map.get(AntStore.pack(x, 1, 2)));
+    }
+
+    private static void assertMapped(Map<Long, Integer> expected, AntPositionMap map) {
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                for (int z = 0; z < 8; z++) {
+                    long key = AntStore.pack(x, y, z);
+                    Integer id = expected.get(key);
+                    assertEquals(id == null ? AntStore.NO_ANT : id, map.get(key));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package cz.kakosa.anthill.ants;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AntStoreTest {
+
+    @Test
+    public void positionsPackAndUnpack() {
+        int[][] positions = {{0, 0, 0}, {1, 2, 3}, {500, 499, 219}, {(1 << 21) - 1, (1 << 21) - 1, (1 << 21) - 1}};
+        for (int[] p : positions) {
+            long pos = AntStore.pack(p[0], p[1], p[2]);
+            assertEquals(p[0], AntStore.unpackX(pos));
+            assertEquals(p[1], AntStore.unpackY(pos));
+            assertEquals(p[2], AntStore.unpackZ(pos));
+        }
+    }
+
+    @Test
+    public void resetClearsTheRowAndCountsGenerations() {
+        AntStore store = new AntStore(2);
+        store.reset(1, AntStore.MAINTAINER, 4, 5, 6);
+        store.carrying[1] = 3;
+        store.carried[1] = 7;
+        store.timer[1] = 100;
+        store.reset(1, AntStore.EXPLORER, 7, 8, 9);
+        assertEquals(AntStore.EXPLORER, store.kind[1]);
+        assertEquals(7, store.x[1]);
+        assertEquals(8, store.y[1]);
+        assertEquals(9, store.z[1]);
+        assertEquals(AntStore.NO_MATERIAL, store.carrying[1]);
+        assertEquals(AntStore.NO_ANT, store.carried[1]);
+        assertEquals(0, store.timer[1]);
+        assertEquals(AntStore.NOWHERE, store.foodLoc[1]);
+        assertEquals(2, store.generation[1]);
+        assertEquals(0, store.generation[0]);
+    }
+
+    @Test
+    public void storeGrowsAndKeepsRows() {
+        AntStore store = new AntStore(1);
+        for (int id = 0; id < 100; id++) {
+            store.reset(id, AntStore.EGG, id, id + 1, id + 2);
+            store.timer[id] = id * 3;
+        }
+        for (int id = 0; id < 100; id++) {
+            assertEquals(id + 1, store.y[id]);
+            assertEquals(id * 3, store.timer[id]);
+            assertEquals(1, store.generation[id]);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package cz.kakosa.anthill.voxels;
+
+public class ArrayColorMapTest extends ColorMapTest {
+
+    @Override
+    protected ColorMap create(int width, int height, int depth) {
+        return new ArrayColorMap(width, height, depth);
+    }
+}
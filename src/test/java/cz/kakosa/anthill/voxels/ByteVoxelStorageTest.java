@@ -0,0 +1,9 @@
+package cz.kakosa.anthill.voxels;
+
+public class ByteVoxelStorageTest extends VoxelStorageTest {
+
+    @Override
+    protected VoxelStorage create(int width, int height, int depth) {
+        return new ByteVoxelStorage(width, height, depth);
+    }
+}
@@ -0,0 +1,94 @@
+package cz.kakosa.anthill.voxels;
+
+import cz.kakosa.anthill.Material;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChunkedVoxelStorageTest extends VoxelStorageTest {
+
+    @Override
+    protected VoxelStorage create(int width, int height, int depth) {
+        return new ChunkedVoxelStorage(width, height, depth);
+    }
+
+    @Test
+    public void writingTheSameMaterialKeepsChunkUniform() {
+        ChunkedVoxelStorage voxels = new ChunkedVoxelStorage(WIDTH, HEIGHT, DEPTH);
+        long empty = voxels.getMemoryUsage();
+        voxels.setId(3, 4, 5, Material.AIR.getId());
+        voxels.fillColumn(3, 4, 0, DEPTH, Material.AIR.getId(), VoxelStorage.ANY);
+        assertEquals(empty, voxels.getMemoryUsage());
+    }
+
+    @Test
+    public void compactCollapsesChunksOfOneMaterial() {
+        ChunkedVoxelStorage voxels = new ChunkedVoxelStorage(WIDTH, HEIGHT, DEPTH);
+        long empty = voxels.getMemoryUsage();
+        for (int x = 0; x < ChunkedVoxelStorage.SIZE; x++) {
+            for (int y = 0; y < ChunkedVoxelStorage.SIZE; y++)
+                voxels.fillColumn(x, y, 0, ChunkedVoxelStorage.SIZE, Material.STONE.getId(), VoxelStorage.ANY);
+        }
+        voxels.setId(20, 18, 69, Material.SOIL.getId());
+        voxels.setId(20, 18, 69, Material.AIR.getId());
+        assertTrue(voxels.getMemoryUsage() > empty);
+        voxels.compact();
+        assertEquals(empty, voxels.getMemoryUsage());
+        assertEquals(Material.STONE.getId(), voxels.getId(15, 15, 15));
+        assertEquals(Material.AIR.getId(), voxels.getId(15, 15, 16));
+        assertEquals(Material.AIR.getId(), voxels.getId(20, 18, 69));
+    }
+
+    @Test
+    public void packedChunksKeepTheirVoxels() {
+        Random r = new Random(5);
+        int[][] cases = {{2, 1}, {3, 2}, {4, 2}, {MATERIALS, 4}};
+        for (int[] materialsAndBits : cases) {
+            int materials = materialsAndBits[0], bits = materialsAndBits[1];
+            byte[] chunk = new byte[ChunkedVoxelStorage.VOLUME];
+            for (int i = 0; i < chunk.length; i++)
+                chunk[i] = (byte) (i < materials ? i : r.nextInt(materials));
+            ChunkedVoxelStorage.PackedChunk packed = new ChunkedVoxelStorage.PackedChunk(chunk);
+            assertEquals(ChunkedVoxelStorage.VOLUME * bits / 8 + materials + 64, packed.getMemoryUsage());
+            byte[] unpacked = new byte[chunk.length];
+            packed.unpack(unpacked);
+            for (int i = 0; i < chunk.length; i++) {
+                assertEquals(chunk[i], packed.get(i));
+                assertEquals(chunk[i], unpacked[i]);
+            }
+        }
+    }
+
+    @Test
+    public void idleChunksArePackedAndUnpackedOnWrite() {
+        ChunkedVoxelStorage voxels = new ChunkedVoxelStorage(WIDTH, HEIGHT, DEPTH, 3, 1000);
+        byte[] expected = new byte[WIDTH * HEIGHT * DEPTH];
+        layer(voxels, expected);
+        long expanded = voxels.getMemoryUsage();
+        voxels.tick();
+        voxels.tick();
+        assertEquals(expanded, voxels.getMemoryUsage());
+        voxels.tick();
+        long packed = voxels.getMemoryUsage();
+        assertTrue(packed < expanded);
+        assertStored(expected, voxels);
+
+        voxels.setId(1, 2, 3, Material.FOOD.getId());
+        expected[index(1, 2, 3)] = (byte) Material.FOOD.getId();
+        voxels.fillColumn(1, 2, 0, DEPTH, Material.STONE.getId(), Material.AIR.getMask());
+        for (int z = 0; z < DEPTH; z++) {
+            if (expected[index(1, 2, z)] == Material.AIR.getId())
+                expected[index(1, 2, z)] = (byte) Material.STONE.getId();
+        }
+        assertTrue(voxels.getMemoryUsage() > packed);
+        assertStored(expected, voxels);
+
+        for (int i = 0; i < 3; i++)
+            voxels.tick();
+        assertTrue(voxels.getMemoryUsage() < expanded);
+        assertStored(expected, voxels);
+    }
+}
@@ -0,0 +1,77 @@
+package cz.kakosa.anthill.voxels;
+
+import cz.kakosa.anthill.Material;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks a colour map against a plain array of colour codes. Every colour map has its own subclass.
+ */
+public abstract class ColorMapTest {
+
+    static final int WIDTH = 23, HEIGHT = 17, DEPTH = 11;
+
+    /**
+     * Creates empty colour map of the tested kind
+     * @param width width of the map
+     * @param height height of the map
+     * @param depth depth of the map
+     * @return colour map filled with ColorPalette.NONE
+     */
+    protected abstract ColorMap create(int width, int height, int depth);
+
+    @Test
+    public void setGetAndRowsRoundTrip() {
+        ColorMap colors = create(WIDTH, HEIGHT, DEPTH);
+        int[] expected = fill(colors);
+        for (int z = 0; z < DEPTH; z++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++)
+                    assertEquals(expected[index(x, y, z)], colors.get(x, y, z));
+            }
+        }
+        int[] row = new int[WIDTH + 2];
+        for (int z = 0; z < DEPTH; z++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                colors.getRow(z, y, 3, WIDTH - 5, row, 2);
+                for (int i = 0; i < WIDTH - 5; i++)
+                    assertEquals(expected[index(3 + i, y, z)], row[2 + i]);
+            }
+        }
+    }
+
+    @Test
+    public void clearForgetsEverything() {
+        ColorMap colors = create(WIDTH, HEIGHT, DEPTH);
+        fill(colors);
+        colors.clear();
+        for (int z = 0; z < DEPTH; z++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++)
+                    assertEquals(ColorPalette.NONE, colors.get(x, y, z));
+            }
+        }
+    }
+
+    private static int[] fill(ColorMap colors) {
+        int[] expected = new int[WIDTH * HEIGHT * DEPTH];
+        Random r = new Random(1);
+        for (int z = 0; z < DEPTH; z++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    int code = ColorPalette.code(r.nextInt(Material.values().length), r.nextInt(ColorPalette.MAX_DISTANCE + 1));
+                    colors.set(x, y, z, code);
+                    expected[index(x, y, z)] = code;
+                }
+            }
+        }
+        return expected;
+    }
+
+    private static int index(int x, int y, int z) {
+        return (z * HEIGHT + y) * WIDTH + x;
+    }
+}
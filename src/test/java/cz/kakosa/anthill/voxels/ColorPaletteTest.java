@@ -0,0 +1,47 @@
+package cz.kakosa.anthill.voxels;
+
+import cz.kakosa.anthill.Material;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ColorPaletteTest {
+
+    private final ColorPalette palette = new ColorPalette();
+
+    @Test
+    public void codesFitIntoTwelveBits() {
+        for (Material m : Material.values())
+            assertTrue(ColorPalette.code(m.getId(), ColorPalette.MAX_DISTANCE) < 1 << 12);
+        assertEquals(ColorPalette.NONE, ColorPalette.code(Material.AIR.getId(), 0));
+        assertEquals(0, palette.color(ColorPalette.NONE));
+    }
+
+    @Test
+    public void materialsDimWithDistance() {
+        for (Material m : Material.values()) {
+            assertEquals(m.getColor() & 0xffffff, palette.color(ColorPalette.code(m.getId(), 1)));
+            int previous = palette.color(ColorPalette.code(m.getId(), 1));
+            for (int k = 2; k <= ColorPalette.MAX_DISTANCE; k++) {
+                int color = palette.color(ColorPalette.code(m.getId(), k));
+                for (int shift = 0; shift < 24; shift += 8)
+                    assertTrue((color >> shift & 0xff) <= (previous >> shift & 0xff));
+                previous = color;
+            }
+        }
+        assertEquals(0xffff0000, palette.color(ColorPalette.code(Material.RED_ANT.getId(), 0)));
+        assertEquals(0xff000000, palette.color(ColorPalette.code(Material.STONE.getId(), 0)));
+    }
+
+    @Test
+    public void resolveTurnsRowOfCodesIntoColours() {
+        int[] row = new int[20];
+        for (int i = 0; i < row.length; i++)
+            row[i] = ColorPalette.code(i % Material.values().length, i * 7);
+        int[] codes = row.clone();
+        palette.resolve(row, 3, 15);
+        for (int i = 0; i < row.length; i++)
+            assertEquals(i < 3 || i >= 18 ? codes[i] : palette.color(codes[i]), row[i]);
+    }
+}
@@ -0,0 +1,35 @@
+package cz.kakosa.anthill.voxels;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MappedColorMapTest extends ColorMapTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<MappedWorld> worlds = new ArrayList<>();
+
+    @Override
+    protected ColorMap create(int width, int height, int depth) {
+        try {
+            MappedWorld world = MappedWorld.open(folder.newFile().toPath(), width, height, depth);
+            worlds.add(world);
+            return world.getColors();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @After
+    public void close() throws IOException {
+        for (MappedWorld world : worlds)
+            world.close();
+    }
+}
@@ -0,0 +1,65 @@
+package cz.kakosa.anthill.voxels;
+
+import cz.kakosa.anthill.Material;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MappedWorldTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reopenedWorldKeepsDimensionsVoxelsAndFlags() throws IOException {
+        Path file = folder.newFile().toPath();
+        try (MappedWorld world = MappedWorld.open(file, 20, 30, 40)) {
+            assertFalse(world.isGenerated());
+            world.getVoxels().fillColumn(5, 6, 0, 10, Material.STONE.getId(), VoxelStorage.ANY);
+            world.getColors().set(5, 6, 10, ColorPalette.code(Material.SOIL.getId(), 17));
+            world.setGenerated();
+            world.setColorsValid(30);
+        }
+        try (MappedWorld world = MappedWorld.open(file, 1, 1, 1)) {
+            assertEquals(20, world.getWidth());
+            assertEquals(30, world.getHeight());
+            assertEquals(40, world.getDepth());
+            assertTrue(world.isGenerated());
+            assertTrue(world.hasColors(30));
+            assertFalse(world.hasColors(40));
+            assertEquals(Material.STONE.getId(), world.getVoxels().getId(5, 6, 9));
+            assertEquals(Material.AIR.getId(), world.getVoxels().getId(5, 6, 10));
+            assertEquals(ColorPalette.code(Material.SOIL.getId(), 17), world.getColors().get(5, 6, 10));
+        }
+    }
+
+    @Test
+    public void invalidatedColorsStayInvalidAfterReopening() throws IOException {
+        Path file = folder.newFile().toPath();
+        try (MappedWorld world = MappedWorld.open(file, 8, 8, 8)) {
+            world.setColorsValid(30);
+            world.invalidateColors();
+        }
+        try (MappedWorld world = MappedWorld.open(file, 8, 8, 8)) {
+            assertFalse(world.hasColors(30));
+            assertFalse(world.isGenerated());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void fileOfAnotherFormatIsRejected() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, new byte[8192]);
+        Files.write(file, "not a world".getBytes(), StandardOpenOption.WRITE);
+        MappedWorld.open(file, 8, 8, 8).close();
+    }
+}
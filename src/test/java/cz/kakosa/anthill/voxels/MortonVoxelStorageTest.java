@@ -0,0 +1,9 @@
+package cz.kakosa.anthill.voxels;
+
+public class MortonVoxelStorageTest extends VoxelStorageTest {
+
+    @Override
+    protected VoxelStorage create(int width, int height, int depth) {
+        return new MortonVoxelStorage(width, height, depth);
+    }
+}
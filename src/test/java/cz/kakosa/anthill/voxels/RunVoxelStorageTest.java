@@ -0,0 +1,30 @@
+package cz.kakosa.anthill.voxels;
+
+import cz.kakosa.anthill.Material;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RunVoxelStorageTest extends VoxelStorageTest {
+
+    @Override
+    protected VoxelStorage create(int width, int height, int depth) {
+        return new RunVoxelStorage(width, height, depth);
+    }
+
+    @Test
+    public void neighbouringRunsOfOneMaterialAreMerged() {
+        RunVoxelStorage voxels = new RunVoxelStorage(WIDTH, HEIGHT, DEPTH);
+        voxels.fillColumn(1, 2, 0, 10, Material.STONE.getId(), VoxelStorage.ANY);
+        voxels.fillColumn(1, 2, 20, 30, Material.STONE.getId(), VoxelStorage.ANY);
+        assertEquals(4, voxels.getRunCount(1, 2));
+        voxels.fillColumn(1, 2, 10, 20, Material.STONE.getId(), VoxelStorage.ANY);
+        assertEquals(2, voxels.getRunCount(1, 2));
+        voxels.setId(1, 2, 5, Material.SOIL.getId());
+        assertEquals(4, voxels.getRunCount(1, 2));
+        voxels.setId(1, 2, 5, Material.STONE.getId());
+        assertEquals(2, voxels.getRunCount(1, 2));
+        voxels.fillColumn(1, 2, 0, DEPTH, Material.AIR.getId(), Material.STONE.getMask());
+        assertEquals(1, voxels.getRunCount(1, 2));
+    }
+}
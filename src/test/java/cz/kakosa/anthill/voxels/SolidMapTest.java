@@ -0,0 +1,155 @@
+package cz.kakosa.anthill.voxels;
+
+import cz.kakosa.anthill.Material;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the bitmap against a plain boolean array. The depth spans several words of a column, so spans crossing words are covered.
+ */
+public class SolidMapTest {
+
+    private static final int WIDTH = 9, HEIGHT = 7, DEPTH = 150;
+
+    private final SolidMap solid = new SolidMap(WIDTH, HEIGHT, DEPTH);
+    private final boolean[] expected = new boolean[WIDTH * HEIGHT * DEPTH];
+
+    @Test
+    public void setAndFillRoundTrip() {
+        randomWrites(new Random(1));
+        assertBitmap();
+    }
+
+    @Test
+    public void rebuildAndUpdateFollowVoxels() {
+        VoxelStorage voxels = new ByteVoxelStorage(WIDTH, HEIGHT, DEPTH);
+        Random r = new Random(2);
+        for (int i = 0; i < 3000; i++) {
+            int x = r.nextInt(WIDTH), y = r.nextInt(HEIGHT), z = r.nextInt(DEPTH);
+            Material m = Material.values()[r.nextInt(Material.values().length)];
+            voxels.set(x, y, z, m);
+        }
+        solid.rebuild(voxels);
+        copySolid(voxels);
+        assertBitmap();
+
+        voxels.fillColumn(3, 4, 20, 130, Material.AIR.getId(), VoxelStorage.ANY);
+        voxels.fillColumn(3, 4, 60, 70, Material.STONE.getId(), VoxelStorage.ANY);
+        solid.update(voxels, 3, 4, 20, 130);
+        copySolid(voxels);
+        assertBitmap();
+    }
+
+    @Test
+    public void countsMatchBruteForce() {
+        randomWrites(new Random(3));
+        Random r = new Random(4);
+        for (int i = 0; i < 500; i++) {
+            int x = r.nextInt(WIDTH), y = r.nextInt(HEIGHT);
+            int zFrom = r.nextInt(DEPTH), zTo = zFrom + r.nextInt(DEPTH - zFrom + 1);
+            int count = 0;
+            for (int z = zFrom; z < zTo; z++)
+                count += expected[index(x, y, z)] ? 1 : 0;
+            assertEquals(count, solid.countSolid(x, y, zFrom, zTo));
+        }
+        for (int i = 0; i < 200; i++) {
+            int x0 = r.nextInt(WIDTH + 4) - 2, y0 = r.nextInt(HEIGHT + 4) - 2, z0 = r.nextInt(DEPTH + 4) - 2;
+            int x1 = x0 + r.nextInt(5), y1 = y0 + r.nextInt(5), z1 = z0 + r.nextInt(70);
+            int air = 0;
+            for (int x = Math.max(x0, 0); x <= Math.min(x1, WIDTH - 1); x++) {
+                for (int y = Math.max(y0, 0); y <= Math.min(y1, HEIGHT - 1); y++) {
+                    for (int z = Math.max(z0, 0); z <= Math.min(z1, DEPTH - 1); z++)
+                        air += expected[index(x, y, z)] ? 0 : 1;
+                }
+            }
+            assertEquals(air, solid.countAir(x0, y0, z0, x1, y1, z1));
+        }
+    }
+
+    @Test
+    public void columnIndexesAndSearchesMatchBruteForce() {
+        randomWrites(new Random(5));
+        Random r = new Random(6);
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                assertEquals(highestBelow(x, y, DEPTH, true), solid.topSolid(x, y));
+                assertEquals(lowestFrom(x, y, 0, false), solid.lowestAir(x, y));
+                for (int i = 0; i < 20; i++) {
+                    int z = r.nextInt(DEPTH + 1);
+                    assertEquals(highestBelow(x, y, z, true), solid.highestSolidBelow(x, y, z));
+                    assertEquals(highestBelow(x, y, z, false), solid.highestAirBelow(x, y, z));
+                    assertEquals(lowestFrom(x, y, z, false), solid.lowestAirFrom(x, y, z));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void fullAndEmptyColumnsHaveNoSurface() {
+        solid.fill(1, 1, 0, DEPTH, true);
+        assertEquals(DEPTH - 1, solid.topSolid(1, 1));
+        assertEquals(DEPTH, solid.lowestAir(1, 1));
+        solid.fill(1, 1, 0, DEPTH, false);
+        assertEquals(-1, solid.topSolid(1, 1));
+        assertEquals(0, solid.lowestAir(1, 1));
+    }
+
+    private int highestBelow(int x, int y, int z, boolean value) {
+        for (z--; z >= 0; z--) {
+            if (expected[index(x, y, z)] == value)
+                return z;
+        }
+        return -1;
+    }
+
+    private int lowestFrom(int x, int y, int z, boolean value) {
+        for (; z < DEPTH; z++) {
+            if (expected[index(x, y, z)] == value)
+                return z;
+        }
+        return DEPTH;
+    }
+
+    private void randomWrites(Random r) {
+        for (int i = 0; i < 2000; i++) {
+            int x = r.nextInt(WIDTH), y = r.nextInt(HEIGHT);
+            boolean value = r.nextBoolean();
+            if (r.nextBoolean()) {
+                int z = r.nextInt(DEPTH);
+                solid.set(x, y, z, value);
+                expected[index(x, y, z)] = value;
+            }
+            else {
+                int zFrom = r.nextInt(DEPTH), zTo = zFrom + r.nextInt(DEPTH - zFrom + 1);
+                solid.fill(x, y, zFrom, zTo, value);
+                for (int z = zFrom; z < zTo; z++)
+                    expected[index(x, y, z)] = value;
+            }
+        }
+    }
+
+    private void copySolid(VoxelStorage voxels) {
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int z = 0; z < DEPTH; z++)
+                    expected[index(x, y, z)] = voxels.get(x, y, z).isSolid();
+            }
+        }
+    }
+
+    private void assertBitmap() {
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int z = 0; z < DEPTH; z++)
+                    assertEquals("voxel " + x + ", " + y + ", " + z, expected[index(x, y, z)], solid.isSolid(x, y, z));
+            }
+        }
+    }
+
+    private static int index(int x, int y, int z) {
+        return (x * HEIGHT + y) * DEPTH + z;
+    }
+}
@@ -0,0 +1,35 @@
+package cz.kakosa.anthill.voxels;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class SphereStencilTest {
+
+    @Test
+    public void spansMatchTheVoxelByVoxelTest() {
+        float[][] scales = {{1, 1, 1}, {1, 1, 0.5f}, {2, 1.5f, 1}, {0.3f, 1, 3}};
+        for (int rad = 0; rad < 20; rad++) {
+            for (float[] s : scales) {
+                SphereStencil stencil = SphereStencil.get(rad, s[0], s[1], s[2]);
+                for (int dx = -rad; dx < rad; dx++) {
+                    for (int dy = -rad; dy < rad; dy++) {
+                        int h = -1;
+                        // dz goes from -rad, so |dz| = rad is inside below the center
+                        for (int dz = 0; dz <= rad; dz++) {
+                            if (Math.pow(dx, 2) * s[0] + Math.pow(dy, 2) * s[1] + Math.pow(dz, 2) * s[2] < Math.pow(rad, 2))
+                                h = dz;
+                        }
+                        assertEquals("rad " + rad + ", column " + dx + ", " + dy, h, stencil.halfDepth(dx, dy));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void smallStencilsAreCached() {
+        assertSame(SphereStencil.get(5, 1, 1, 1), SphereStencil.get(5, 1, 1, 1));
+    }
+}
@@ -0,0 +1,77 @@
+package cz.kakosa.anthill.voxels;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TileColorCacheTest {
+
+    private static final int WIDTH = 70, HEIGHT = 40, DEPTH = 5;
+    private static final int TILE = TileColorCache.TILE;
+
+    /**
+     * Added to every colour, so that recomputed tiles differ from the old ones
+     */
+    private int shade;
+    private int colored;
+
+    private final TileColorCache.TileColorer colorer = (x0, y0, z, w, h, dest) -> {
+        colored++;
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++)
+                dest[y * w + x] = (short) color(x0 + x, y0 + y, z);
+        }
+    };
+
+    /**
+     * Colour codes fit into 12 bits, so neighbouring voxels get different even codes and shade makes them odd
+     */
+    private int color(int x, int y, int z) {
+        return (((z * HEIGHT + y) * WIDTH + x) * 2 & 0xfff) + shade;
+    }
+
+    @Test
+    public void cellsAndRowsHoldColoursOfTheColorer() {
+        TileColorCache cache = new TileColorCache(WIDTH, HEIGHT, DEPTH, colorer, 1 << 20);
+        int[] row = new int[WIDTH];
+        for (int z = 0; z < DEPTH; z++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++)
+                    assertEquals(color(x, y, z), cache.get(x, y, z));
+                cache.getRow(z, y, 1, WIDTH - 1, row, 0);
+                for (int x = 1; x < WIDTH; x++)
+                    assertEquals(color(x, y, z), row[x - 1]);
+            }
+        }
+    }
+
+    @Test
+    public void tilesAreColouredOnceUntilTheirColumnsChange() {
+        TileColorCache cache = new TileColorCache(WIDTH, HEIGHT, DEPTH, colorer, 1 << 20);
+        cache.get(0, 0, 1);
+        cache.get(TILE - 1, TILE - 1, 1);
+        cache.get(TILE, 0, 1);
+        assertEquals(2, colored);
+
+        shade = 1;
+        cache.set(5, 6, 3, 0);
+        assertEquals(color(0, 0, 1), cache.get(0, 0, 1));
+        assertEquals(color(TILE, 0, 1) - 1, cache.get(TILE, 0, 1));
+        assertEquals(3, colored);
+    }
+
+    @Test
+    public void leastRecentlyUsedTilesAreForgotten() {
+        long twoTiles = 2 * (TILE * TILE * 2 + 96);
+        TileColorCache cache = new TileColorCache(WIDTH, HEIGHT, DEPTH, colorer, twoTiles);
+        cache.get(0, 0, 0);
+        cache.get(0, 0, 1);
+        cache.get(0, 0, 0);
+        cache.get(0, 0, 2); // forgets layer 1
+        assertEquals(3, colored);
+        cache.get(0, 0, 0);
+        assertEquals(3, colored);
+        cache.get(0, 0, 1);
+        assertEquals(4, colored);
+    }
+}
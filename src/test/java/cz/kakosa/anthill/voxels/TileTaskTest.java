@@ -0,0 +1,28 @@
+package cz.kakosa.anthill.voxels;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TileTaskTest {
+
+    @Test
+    public void everyColumnIsProcessedOnceInsideOfItsTile() {
+        int width = 100, height = 45, tile = 16;
+        AtomicIntegerArray visits = new AtomicIntegerArray(width * height);
+        TileTask.run(width, height, tile, (x0, y0, x1, y1) -> {
+            assertEquals(0, x0 % tile);
+            assertEquals(0, y0 % tile);
+            assertTrue(x1 - x0 <= tile && y1 - y0 <= tile);
+            for (int x = x0; x < x1; x++) {
+                for (int y = y0; y < y1; y++)
+                    visits.incrementAndGet(x * height + y);
+            }
+        });
+        for (int i = 0; i < visits.length(); i++)
+            assertEquals(1, visits.get(i));
+    }
+}
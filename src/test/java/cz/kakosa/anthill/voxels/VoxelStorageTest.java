@@ -0,0 +1,170 @@
+package cz.kakosa.anthill.voxels;
+
+import cz.kakosa.anthill.Material;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks a voxel storage against a plain array of ids filled by the same writes. Every storage has its own subclass.
+ * The map is not a multiple of any chunk or block size, so partial chunks at the edges are covered too.
+ */
+public abstract class VoxelStorageTest {
+
+    static final int WIDTH = 21, HEIGHT = 19, DEPTH = 70;
+    static final int MATERIALS = Material.values().length;
+
+    /**
+     * Creates empty storage of the tested kind
+     * @param width width of the map
+     * @param height height of the map
+     * @param depth depth of the map
+     * @return storage filled with air
+     */
+    protected abstract VoxelStorage create(int width, int height, int depth);
+
+    @Test
+    public void newStorageHoldsAir() {
+        VoxelStorage voxels = create(WIDTH, HEIGHT, DEPTH);
+        assertEquals(WIDTH, voxels.getWidth());
+        assertEquals(HEIGHT, voxels.getHeight());
+        assertEquals(DEPTH, voxels.getDepth());
+        assertStored(new byte[WIDTH * HEIGHT * DEPTH], voxels);
+    }
+
+    @Test
+    public void setIdRoundTrips() {
+        VoxelStorage voxels = create(WIDTH, HEIGHT, DEPTH);
+        byte[] expected = new byte[WIDTH * HEIGHT * DEPTH];
+        Random r = new Random(1);
+        for (int i = 0; i < 5000; i++) {
+            int x = r.nextInt(WIDTH), y = r.nextInt(HEIGHT), z = r.nextInt(DEPTH), id = r.nextInt(MATERIALS);
+            voxels.setId(x, y, z, id);
+            expected[index(x, y, z)] = (byte) id;
+        }
+        assertStored(expected, voxels);
+    }
+
+    @Test
+    public void fillColumnReplacesOnlyMaskedMaterials() {
+        VoxelStorage voxels = create(WIDTH, HEIGHT, DEPTH);
+        byte[] expected = new byte[WIDTH * HEIGHT * DEPTH];
+        layer(voxels, expected);
+        Random r = new Random(2);
+        for (int i = 0; i < 3000; i++) {
+            int x = r.nextInt(WIDTH), y = r.nextInt(HEIGHT);
+            int zFrom = r.nextInt(DEPTH), zTo = zFrom + r.nextInt(DEPTH - zFrom + 1);
+            int id = r.nextInt(MATERIALS);
+            int mask = r.nextInt(4) == 0 ? VoxelStorage.ANY : r.nextInt(1 << MATERIALS);
+            voxels.fillColumn(x, y, zFrom, zTo, id, mask);
+            for (int z = zFrom; z < zTo; z++) {
+                if ((mask & (1 << expected[index(x, y, z)])) != 0)
+                    expected[index(x, y, z)] = (byte) id;
+            }
+        }
+        assertStored(expected, voxels);
+    }
+
+    @Test
+    public void firstSolidFromFindsLowestSolidVoxel() {
+        VoxelStorage voxels = create(WIDTH, HEIGHT, DEPTH);
+        byte[] expected = new byte[WIDTH * HEIGHT * DEPTH];
+        layer(voxels, expected);
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int zFrom = 0; zFrom < DEPTH; zFrom += 7) {
+                    int z = zFrom;
+                    while (z < DEPTH && ! Material.byId(expected[index(x, y, z)]).isSolid())
+                        z++;
+                    assertEquals(z, voxels.firstSolidFrom(x, y, zFrom));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void runEndFindsNextMaterial() {
+        VoxelStorage voxels = create(WIDTH, HEIGHT, DEPTH);
+        byte[] expected = new byte[WIDTH * HEIGHT * DEPTH];
+        layer(voxels, expected);
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int z = 0; z < DEPTH; z++) {
+                    int end = z + 1;
+                    while (end < DEPTH && expected[index(x, y, end)] == expected[index(x, y, z)])
+                        end++;
+                    assertEquals(end, voxels.runEnd(x, y, z));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void findInBoxFindsHighestVoxelFirst() {
+        VoxelStorage voxels = create(WIDTH, HEIGHT, DEPTH);
+        byte[] expected = new byte[WIDTH * HEIGHT * DEPTH];
+        layer(voxels, expected);
+        Random r = new Random(4);
+        for (int i = 0; i < 300; i++) {
+            int x = r.nextInt(WIDTH), y = r.nextInt(HEIGHT), z = r.nextInt(DEPTH);
+            voxels.setId(x, y, z, Material.FOOD.getId());
+            expected[index(x, y, z)] = (byte) Material.FOOD.getId();
+        }
+        int mask = Material.FOOD.getMask() | Material.GRASS.getMask();
+        for (int i = 0; i < 500; i++) {
+            int x0 = r.nextInt(WIDTH + 10) - 5, y0 = r.nextInt(HEIGHT + 10) - 5, z0 = r.nextInt(DEPTH + 10) - 5;
+            int x1 = x0 + r.nextInt(20), y1 = y0 + r.nextInt(20), z1 = z0 + r.nextInt(20);
+            assertArrayEquals(findInBox(expected, x0, y0, z0, x1, y1, z1, mask), voxels.findInBox(x0, y0, z0, x1, y1, z1, mask));
+        }
+    }
+
+    private static int[] findInBox(byte[] expected, int x0, int y0, int z0, int x1, int y1, int z1, int mask) {
+        for (int z = Math.min(z1, DEPTH - 1); z >= Math.max(z0, 0); z--) {
+            for (int x = Math.max(x0, 0); x <= Math.min(x1, WIDTH - 1); x++) {
+                for (int y = Math.max(y0, 0); y <= Math.min(y1, HEIGHT - 1); y++) {
+                    if ((mask & (1 << expected[index(x, y, z)])) != 0)
+                        return new int[] {x, y, z};
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Fills the map like the generator does (stone, soil, grass, air with a few tunnels), so that storages keep big uniform parts
+     */
+    static void layer(VoxelStorage voxels, byte[] expected) {
+        Random r = new Random(3);
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                int soil = 5 + r.nextInt(3), grass = 30 + r.nextInt(10);
+                voxels.fillColumn(x, y, 0, soil, Material.STONE.getId(), VoxelStorage.ANY);
+                voxels.fillColumn(x, y, soil, grass, Material.SOIL.getId(), VoxelStorage.ANY);
+                voxels.setId(x, y, grass, Material.GRASS.getId());
+                for (int z = 0; z < DEPTH; z++)
+                    expected[index(x, y, z)] = (byte) (z < soil ? Material.STONE.getId() : z < grass ? Material.SOIL.getId() : z == grass ? Material.GRASS.getId() : 0);
+            }
+        }
+        for (int i = 0; i < 200; i++) {
+            int x = r.nextInt(WIDTH), y = r.nextInt(HEIGHT), z = r.nextInt(DEPTH);
+            voxels.setId(x, y, z, Material.AIR.getId());
+            expected[index(x, y, z)] = 0;
+        }
+    }
+
+    static int index(int x, int y, int z) {
+        return (x * HEIGHT + y) * DEPTH + z;
+    }
+
+    static void assertStored(byte[] expected, VoxelStorage voxels) {
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int z = 0; z < DEPTH; z++)
+                    assertEquals("voxel " + x + ", " + y + ", " + z, expected[index(x, y, z)], voxels.getId(x, y, z));
+            }
+        }
+    }
+}
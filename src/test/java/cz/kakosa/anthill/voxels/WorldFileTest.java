@@ -0,0 +1,116 @@
+package cz.kakosa.anthill.voxels;
+
+import cz.kakosa.anthill.Material;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static cz.kakosa.anthill.voxels.VoxelStorageTest.DEPTH;
+import static cz.kakosa.anthill.voxels.VoxelStorageTest.HEIGHT;
+import static cz.kakosa.anthill.voxels.VoxelStorageTest.WIDTH;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WorldFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void savedMapLoadsBackIntoAnyStorage() throws IOException {
+        VoxelStorage saved = new ByteVoxelStorage(WIDTH, HEIGHT, DEPTH);
+        byte[] expected = new byte[WIDTH * HEIGHT * DEPTH];
+        VoxelStorageTest.layer(saved, expected);
+        Path file = folder.newFile().toPath();
+        WorldFile.save(file, saved, null, 30);
+
+        try (WorldFile world = WorldFile.open(file)) {
+            assertEquals(WIDTH, world.getWidth());
+            assertEquals(HEIGHT, world.getHeight());
+            assertEquals(DEPTH, world.getDepth());
+            assertFalse(world.hasColors(30));
+            VoxelStorage loaded = new ChunkedVoxelStorage(WIDTH, HEIGHT, DEPTH);
+            SolidMap solid = new SolidMap(WIDTH, HEIGHT, DEPTH);
+            world.readVoxels(loaded, solid);
+            VoxelStorageTest.assertStored(expected, loaded);
+            for (int x = 0; x < WIDTH; x++) {
+                for (int y = 0; y < HEIGHT; y++) {
+                    for (int z = 0; z < DEPTH; z++)
+                        assertEquals(loaded.get(x, y, z).isSolid(), solid.isSolid(x, y, z));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void savedColorsLoadBack() throws IOException {
+        VoxelStorage voxels = new ByteVoxelStorage(WIDTH, HEIGHT, DEPTH);
+        ColorMap colors = new ArrayColorMap(WIDTH, HEIGHT, DEPTH);
+        Random r = new Random(1);
+        for (int z = 0; z < DEPTH; z++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++)
+                    colors.set(x, y, z, ColorPalette.code(r.nextInt(Material.values().length), r.nextInt(ColorPalette.MAX_DISTANCE + 1)));
+            }
+        }
+        Path file = folder.newFile().toPath();
+        WorldFile.save(file, voxels, colors, 40);
+
+        try (WorldFile world = WorldFile.open(file)) {
+            assertTrue(world.hasColors(40));
+            assertFalse(world.hasColors(30));
+            world.readVoxels(new ByteVoxelStorage(WIDTH, HEIGHT, DEPTH), new SolidMap(WIDTH, HEIGHT, DEPTH));
+            ColorMap loaded = new ArrayColorMap(WIDTH, HEIGHT, DEPTH);
+            world.readColors(loaded);
+            for (int z = 0; z < DEPTH; z++) {
+                for (int y = 0; y < HEIGHT; y++) {
+                    for (int x = 0; x < WIDTH; x++)
+                        assertEquals(colors.get(x, y, z), loaded.get(x, y, z));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void runsLongerThanAnUnsignedShortAreSplit() throws IOException {
+        int depth = 70000;
+        VoxelStorage saved = new ByteVoxelStorage(1, 1, depth);
+        saved.fillColumn(0, 0, 0, depth - 1, Material.STONE.getId(), VoxelStorage.ANY);
+        Path file = folder.newFile().toPath();
+        WorldFile.save(file, saved, null, 30);
+
+        try (WorldFile world = WorldFile.open(file)) {
+            VoxelStorage loaded = new ByteVoxelStorage(1, 1, depth);
+            world.readVoxels(loaded, new SolidMap(1, 1, depth));
+            for (int z = 0; z < depth; z++)
+                assertEquals(saved.getId(0, 0, z), loaded.getId(0, 0, z));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void fileOfAnotherFormatIsRejected() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, new byte[64]);
+        WorldFile.open(file).close();
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedFileIsRejected() throws IOException {
+        VoxelStorage saved = new ByteVoxelStorage(WIDTH, HEIGHT, DEPTH);
+        VoxelStorageTest.layer(saved, new byte[WIDTH * HEIGHT * DEPTH]);
+        Path file = folder.newFile().toPath();
+        WorldFile.save(file, saved, null, 30);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+        try (WorldFile world = WorldFile.open(file)) {
+            world.readVoxels(new ByteVoxelStorage(WIDTH, HEIGHT, DEPTH), new SolidMap(WIDTH, HEIGHT, DEPTH));
+        }
+    }
+}